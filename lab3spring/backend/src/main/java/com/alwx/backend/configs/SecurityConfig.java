@@ -68,6 +68,8 @@ public class SecurityConfig{
         configuration.addAllowedOrigin(frontendUrl);
         configuration.addAllowedHeader("*");
         configuration.addAllowedMethod("*");
+        configuration.addExposedHeader("ETag");
+        configuration.addExposedHeader("X-Table-Version");
         configuration.setAllowCredentials(true);
         http
             .authenticationProvider(daoAuthenticationProvider())
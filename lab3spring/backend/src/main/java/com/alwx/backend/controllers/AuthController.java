@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.alwx.backend.dtos.JwtRequest;
 import com.alwx.backend.dtos.RegUserDto;
 import com.alwx.backend.service.AuthService;
+import com.alwx.backend.utils.TransactionRetrier;
 
 /**
  * Контроллер для обработки аутентификации и регистрации пользователей
@@ -24,6 +25,12 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    /**
+     * Повтор транзакций при конфликтах с конкурентными транзакциями.
+     */
+    @Autowired
+    private TransactionRetrier transactionRetrier;
+
     /**
      * Создает токен аутентификации на основе данных пользователя
      *
@@ -43,6 +50,6 @@ public class AuthController {
      */
     @PostMapping("/reg")
     public ResponseEntity<?> createNewUser(@RequestBody RegUserDto regUserDto) {
-        return authService.createNewUser(regUserDto);
+        return transactionRetrier.execute("createNewUser", () -> authService.createNewUser(regUserDto));
     }
 }
@@ -1,12 +1,13 @@
 package com.alwx.backend.controllers;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.validation.BindingResult;
@@ -22,20 +23,23 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.alwx.backend.dtos.AdminRightsRequest;
 import com.alwx.backend.dtos.AppError;
 import com.alwx.backend.dtos.RequestVehicle;
-import com.alwx.backend.dtos.SimpleInfoAboutCars;
-import com.alwx.backend.models.Vehicle;
 import com.alwx.backend.models.enums.Action;
 import com.alwx.backend.service.AuthService;
 import com.alwx.backend.service.ImportRequestService;
 import com.alwx.backend.service.UserActionService;
 import com.alwx.backend.service.UserService;
+import com.alwx.backend.service.VehicleBatchService;
+import com.alwx.backend.service.VehicleChangeLogService;
 import com.alwx.backend.service.VehicleImportService;
+import com.alwx.backend.service.VehicleMapService;
+import com.alwx.backend.service.VehicleReadModel;
 import com.alwx.backend.service.VehicleService;
-import com.alwx.backend.utils.LockProvider;
+import com.alwx.backend.utils.TransactionRetrier;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -79,34 +83,143 @@ public class UserController {
 
     private final VehicleImportService vehicleImportService;
 
-    private final LockProvider lockProvider;
+    /**
+     * Кешированная модель чтения таблицы тс.
+     */
+    private final VehicleReadModel vehicleReadModel;
+
+    /**
+     * Журнал изменений таблицы тс.
+     */
+    private final VehicleChangeLogService vehicleChangeLogService;
+
+    /**
+     * Агрегация тс для карты.
+     */
+    private final VehicleMapService vehicleMapService;
+
+    /**
+     * Повтор транзакций при конфликтах с конкурентными транзакциями.
+     */
+    private final TransactionRetrier transactionRetrier;
+
+    /**
+     * Пакетное создание тс.
+     */
+    private final VehicleBatchService vehicleBatchService;
 
     /**
      * Получает таблицу с автомобилями для пользователей.
-     * @return Список с информацией о автомобилях
+     * По умолчанию отдаёт одну страницу с курсором на следующую (keyset-пагинация),
+     * при full=true отдаёт всю таблицу целиком из модели чтения с ETag.
+     * @param full Флаг выдачи всей таблицы без пагинации
+     * @param sort Поле сортировки страницы (id, name, enginePower)
+     * @param after Курсор, полученный вместе с предыдущей страницей
+     * @param size Размер страницы
+     * @param ifNoneMatch ETag версии таблицы, которая уже есть у клиента (только для full=true)
+     * @return ResponseEntity со страницей или списком с информацией о автомобилях
      */
     @GetMapping("/vehicles")
-    public List<SimpleInfoAboutCars> getTableWithVehicle(){
-        
-        List<? extends Vehicle> carsForUsers = vehicleService.getAllVehicle();
-        List<SimpleInfoAboutCars> request = new ArrayList<>();
-        for(Vehicle vehicle : carsForUsers){
-            request.add(new SimpleInfoAboutCars(vehicle));
+    public ResponseEntity<?> getTableWithVehicle(
+            @RequestParam(name = "full", defaultValue = "false") boolean full,
+            @RequestParam(name = "sort", defaultValue = "id") String sort,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "50") int size,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        if(!full){
+            return vehicleService.getVehiclePage(sort, after, size);
         }
-        
-        return request;
+
+        return vehicleReadModel.getTable(ifNoneMatch);
+    }
+
+    /**
+     * Отдаёт всю таблицу с автомобилями потоково: строки читаются курсором из бд
+     * и сразу пишутся в ответ, поэтому память не зависит от размера таблицы.
+     * @return ResponseEntity с потоковым JSON-массивом автомобилей
+     */
+    @GetMapping(value = "/vehicles", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamTableWithVehicle(){
+        StreamingResponseBody body = out -> vehicleService.writeAllVehicle(out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
+    /**
+     * Получает отфильтрованную на стороне бд страницу таблицы с автомобилями.
+     * @param filter Режим фильтрации (minEnginePower, namePrefix, vehicleType, wheelsRange)
+     * @param namePrefix Начало имени
+     * @param vehicleType Тип тс
+     * @param wheelsMin Минимум колёс
+     * @param wheelsMax Максимум колёс
+     * @param after Курсор, полученный вместе с предыдущей страницей
+     * @param size Размер страницы
+     * @return ResponseEntity со страницей автомобилей
+     */
+    @GetMapping(value = "/vehicles", params = "filter")
+    public ResponseEntity<?> getFilteredTableWithVehicle(
+            @RequestParam(name = "filter") String filter,
+            @RequestParam(name = "namePrefix", required = false) String namePrefix,
+            @RequestParam(name = "vehicleType", required = false) String vehicleType,
+            @RequestParam(name = "wheelsMin", required = false) Long wheelsMin,
+            @RequestParam(name = "wheelsMax", required = false) Long wheelsMax,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "size", defaultValue = "50") int size){
+        return vehicleService.getFilteredVehiclePage(filter, namePrefix, vehicleType, wheelsMin, wheelsMax, after, size);
+    }
+
+    /**
+     * Получает изменения таблицы с автомобилями после версии, которая уже есть у клиента.
+     * @param since Версия таблицы у клиента
+     * @return ResponseEntity с изменёнными строками и id удалённых тс, либо с флагом полной перезагрузки
+     */
+    @GetMapping("/vehicles/changes")
+    public ResponseEntity<?> getVehicleChanges(@RequestParam(name = "since") long since){
+        return vehicleChangeLogService.getChangesSince(since);
+    }
+
+    /**
+     * Получает тс видимой области карты: кластеры плотных ячеек сетки и отдельные тс из разреженных.
+     * @param minX Левая граница области
+     * @param maxX Правая граница области
+     * @param minY Нижняя граница области
+     * @param maxY Верхняя граница области
+     * @param zoom Масштаб, от него зависит размер сетки
+     * @return ResponseEntity с кластерами и точками
+     */
+    @GetMapping("/vehicles/map")
+    public ResponseEntity<?> getVehicleMap(
+            @RequestParam(name = "minX") Long minX,
+            @RequestParam(name = "maxX") Long maxX,
+            @RequestParam(name = "minY") Double minY,
+            @RequestParam(name = "maxY") Double maxY,
+            @RequestParam(name = "zoom", defaultValue = "3") int zoom){
+        return vehicleMapService.getMapView(minX, maxX, minY, maxY, zoom);
+    }
+
+    /**
+     * Получает один автомобиль, версия строки отдаётся в ETag.
+     * @param id Идентификатор автомобиля
+     * @return ResponseEntity с информацией о автомобиле
+     */
+    @GetMapping("/vehicles/{id}")
+    public ResponseEntity<?> getVehicle(@PathVariable("id") Long id){
+        return vehicleService.getVehicle(id);
     }
 
     /**
      * Обновляет информацию о автомобиле.
      * @param token Токен аутентификации
      * @param id Идентификатор автомобиля
+     * @param ifMatch ETag версии, которую редактирует клиент, при несовпадении ответ 412
      * @param newVehicle Объект с новой информацией о автомобиле
      * @param bindingResult Результат валидации данных
      * @return ResponseEntity с результатом обновления
      */
     @PatchMapping("/vehicles/{id}")
-    public ResponseEntity<?> updateVehicle(@RequestHeader(name = "Authorization") String token, @PathVariable("id") Long id, @Valid @RequestBody RequestVehicle newVehicle, BindingResult bindingResult){
+    public ResponseEntity<?> updateVehicle(@RequestHeader(name = "Authorization") String token, @PathVariable("id") Long id, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch, @Valid @RequestBody RequestVehicle newVehicle, BindingResult bindingResult){
 
         if (bindingResult.hasErrors()) {
             List<String> errors = bindingResult.getAllErrors()
@@ -116,18 +229,10 @@ public class UserController {
             return ResponseEntity.badRequest().body(new AppError(HttpStatus.BAD_REQUEST.value(), errors.toString()));
         }
 
-        ResponseEntity<?> response;
-        try{
-            lockProvider.getReentranLock().lock();
-            response = vehicleService.updateVehicle(id, newVehicle, token.substring(7));
-        }finally{
-            lockProvider.getReentranLock().unlock();
-        }
+        ResponseEntity<?> response = transactionRetrier.execute("updateVehicle", () -> vehicleService.updateVehicle(id, newVehicle, token.substring(7), ifMatch));
 
         if(response.getStatusCode().equals(HttpStatus.OK)){
             userActionService.logAction(Action.UPDATE_VEHICLE, token.substring(7), id);
-            messagingTemplate.convertAndSend("/topic/tableUpdates", 
-                "{\"message\": \"Данные в таблице обновлены\"}");
         }
         return response;
     }
@@ -137,15 +242,14 @@ public class UserController {
      * @param id Идентификатор автомобиля
      * @param token Токен аутентификации
      * @param reassignId Идентификатор автомобиля для переназначения координат
+     * @param ifMatch ETag версии, которую удаляет клиент, при несовпадении ответ 412
      * @return ResponseEntity с результатом удаления
      */
     @DeleteMapping("/vehicles/{id}")
-    public ResponseEntity<?> deleteVehicle(@PathVariable("id") Long id, @RequestHeader(name = "Authorization") String token, @RequestHeader(name = "Reassign-Vehicle-Id") String reassignId){
-        ResponseEntity<?> response = vehicleService.deleteVehicle(id, token.substring(7), reassignId);
+    public ResponseEntity<?> deleteVehicle(@PathVariable("id") Long id, @RequestHeader(name = "Authorization") String token, @RequestHeader(name = "Reassign-Vehicle-Id") String reassignId, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        ResponseEntity<?> response = transactionRetrier.execute("deleteVehicle", () -> vehicleService.deleteVehicle(id, token.substring(7), reassignId, ifMatch));
         if(response.getStatusCode().equals(HttpStatus.OK)){
             userActionService.logAction(Action.DELETE_VEHICLE, token.substring(7), id);
-            messagingTemplate.convertAndSend("/topic/tableUpdates", 
-                "{\"message\": \"Данные в таблице обновлены\"}");
         }
 
         return response;
@@ -170,26 +274,47 @@ public class UserController {
                 .body(new AppError(HttpStatus.BAD_REQUEST.value(), errors.toString()));
         }
 
-        ResponseEntity<?> response;
-        try{
-            lockProvider.getReentranLock().lock();
-            response = vehicleService.createVehicle(newVehicle); 
-        }finally{
-            lockProvider.getReentranLock().unlock();
-        }
+        ResponseEntity<?> response = transactionRetrier.execute("createVehicle", () -> vehicleService.createVehicle(newVehicle));
 
         
         if(response.getStatusCode().equals(HttpStatus.OK)){
             Map<String, Long> responseBody = (Map<String, Long>) response.getBody();
             userActionService.logAction(Action.CREATE_VEHICLE, token.substring(7),  responseBody.get("id"));
-            messagingTemplate.convertAndSend("/topic/tableUpdates", 
-                "{\"message\": \"Данные в таблице обновлены\"}");
         }
         
         
         return response;
     }
 
+    /**
+     * Создает пакет автомобилей в одной транзакции. Все автомобили проверяются до вставки,
+     * при любой ошибке не создаётся ни один.
+     * @param token Токен аутентификации
+     * @param newVehicles Список новых автомобилей
+     * @return ResponseEntity с id созданных автомобилей или списком ошибок
+     */
+    @PostMapping("/vehicles/batch")
+    public ResponseEntity<?> createVehicles(@RequestHeader(name = "Authorization") String token, @RequestBody List<RequestVehicle> newVehicles) {
+        return transactionRetrier.execute("createVehicles", () -> vehicleBatchService.createVehicles(newVehicles, token.substring(7)));
+    }
+
+    /**
+     * Удаляет все автомобили, подходящие под фильтр, которые пользователь имеет право удалить.
+     * @param token Токен аутентификации
+     * @param fuelType Тип топлива
+     * @param type Тип автомобиля
+     * @param owner Имя владельца
+     * @return ResponseEntity с количеством удалённых автомобилей
+     */
+    @DeleteMapping("/vehicles")
+    public ResponseEntity<?> deleteVehicles(
+            @RequestHeader(name = "Authorization") String token,
+            @RequestParam(name = "fuelType", required = false) String fuelType,
+            @RequestParam(name = "type", required = false) String type,
+            @RequestParam(name = "owner", required = false) String owner) {
+        return transactionRetrier.execute("deleteVehicles", () -> vehicleBatchService.deleteVehicles(fuelType, type, owner, token.substring(7)));
+    }
+
     /**
      * Отправляет запрос на получение прав администратора.
      * @param adminRightsRequest Объект с данными запроса
@@ -213,20 +338,29 @@ public class UserController {
         return authService.updateAuthToken(token);
     }
 
+    /**
+     * Ставит импорт csv-файла в очередь. Ход импорта приходит в /user/queue/imports.
+     * @param token Токен аутентификации
+     * @param file Csv-файл
+     * @return ResponseEntity с id заявки импорта
+     */
     @PostMapping("/vehicles/import")
     public ResponseEntity<?> importVehicles(@RequestHeader(name = "Authorization") String token, @RequestParam("file") MultipartFile file){
-        ResponseEntity<?> response;
-        try{
-            while(!lockProvider.getReentranLock().isHeldByCurrentThread()){
-                lockProvider.getReentranLock().lock();
-            }
-            response = vehicleImportService.processImport(file, token);
-        }finally{
-            lockProvider.getReentranLock().unlock();
-        }
+        ResponseEntity<?> response = vehicleImportService.processImport(file, token);
         
-        messagingTemplate.convertAndSend("/topic/tableUpdates", 
-            "{\"message\": \"Данные в таблице обновлены\"}");
+        messagingTemplate.convertAndSend("/topic/istat", "{\"message\": \"Данные в таблице статусов обновлены\"}");
+        return response;
+    }
+
+    /**
+     * Ставит прерванный импорт обратно в очередь, он продолжится с последней сохранённой части.
+     * @param token Токен аутентификации
+     * @param id Id заявки импорта
+     * @return ResponseEntity с id заявки импорта
+     */
+    @PostMapping("/vehicles/import/{id}/resume")
+    public ResponseEntity<?> resumeImport(@RequestHeader(name = "Authorization") String token, @PathVariable("id") Long id){
+        ResponseEntity<?> response = vehicleImportService.resumeImport(id, token);
 
         messagingTemplate.convertAndSend("/topic/istat", "{\"message\": \"Данные в таблице статусов обновлены\"}");
         return response;
@@ -1,6 +1,7 @@
 package com.alwx.backend.controllers.exceptionHandlers;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -8,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -21,8 +23,12 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import com.alwx.backend.controllers.exceptionHandlers.exceptions.BusinessException;
 import com.alwx.backend.controllers.exceptionHandlers.exceptions.ImportValidationException;
 import com.alwx.backend.dtos.AppError;
+import com.alwx.backend.models.Vehicle;
 import com.alwx.backend.models.enums.StatusType;
+import com.alwx.backend.service.CoordinatesService;
 import com.alwx.backend.service.ImportRequestService;
+import com.alwx.backend.utils.ConstraintViolations;
+import com.alwx.backend.utils.UserError;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 
@@ -44,6 +50,9 @@ public class GlobalExceptionHandler {
     @Autowired
     private ImportRequestService importRequest;
 
+    @Autowired
+    private CoordinatesService coordinatesService;
+
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<AppError> handleBusinessValidationException(BusinessException ex, Locale locale) {
         return new ResponseEntity<>(
@@ -57,7 +66,9 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(ImportValidationException.class)
     public ResponseEntity<AppError> handleImportValidationException(ImportValidationException ex, Locale locale) {
-        importRequest.saveT(StatusType.ERROR, ex.getToken().substring(7), 0l, null);
+        if (ex.getToken() != null) {
+            importRequest.saveT(StatusType.ERROR, ex.getToken().substring(7), 0l, null);
+        }
         messagingTemplate.convertAndSend("/topic/istat", "{\"message\": \"Данные в таблице статусов обновлены\"}");
         return new ResponseEntity<>(
                 new AppError(
@@ -79,6 +90,17 @@ public class GlobalExceptionHandler {
             );
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<AppError> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex, Locale locale) {
+        return new ResponseEntity<>(
+                new AppError(
+                    HttpStatus.CONFLICT.value(), 
+                    "Объект был изменён другим пользователем. Обновите данные и повторите попытку."
+                ), 
+                HttpStatus.CONFLICT
+            );
+    }
+
     @ExceptionHandler(UnexpectedRollbackException.class)
     public ResponseEntity<AppError> handleUnexpectedRollbackException(UnexpectedRollbackException ex, Locale locale) {
         return new ResponseEntity<>(
@@ -147,6 +169,22 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<AppError> handleDataIntegrityViolation(DataIntegrityViolationException ex, Locale locale) {
         System.out.println(ex);
+        if (ConstraintViolations.isViolationOf(ex, Vehicle.NAME_CONSTRAINT)) {
+            return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new AppError(HttpStatus.BAD_REQUEST.value(), UserError.VEHICLE_NAME_EXISTS.getMessage()));
+        }
+        if (ConstraintViolations.isViolationOf(ex, Vehicle.COORDINATES_FK)) {
+            Long staleId = ConstraintViolations.referencedId(ex, Vehicle.COORDINATES_COLUMN);
+            if (staleId != null) {
+                coordinatesService.evict(List.of(staleId));
+            } else {
+                coordinatesService.clearCache();
+            }
+            return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new AppError(HttpStatus.CONFLICT.value(), UserError.COORDINATES_DELETED.getMessage()));
+        }
         String message = messageSource.getMessage(
             "dataIntegrity.error",
             null,
@@ -0,0 +1,18 @@
+package com.alwx.backend.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Строка файла импорта после разбора и проверки.
+ */
+@Data
+@AllArgsConstructor
+public class ImportRow {
+    /**
+     * Номер записи в файле, с 1, без строки заголовков.
+     */
+    private long number;
+
+    private RequestVehicle vehicle;
+}
@@ -11,4 +11,8 @@ public class ImportStatus {
     private String username;
     private Long count; 
     private String uid; 
+    private Long rowsProcessed;
+    private Long bytesRead;
+    private Long bytesTotal;
+    private String message;
 }
@@ -10,7 +10,13 @@ import lombok.Data;
 
 @Data
 public class SimpleInfoAboutCars {
+    /**
+     * Разделитель имён владельцев в {@link VehicleRow#getNamesUsers()}, в sql это chr(31).
+     */
+    public static final String OWNERS_SEPARATOR = "\u001f";
+
     private Long id; 
+    private Long version;
     private String name;
     private Long x;
     private Double y;
@@ -30,9 +36,10 @@ public class SimpleInfoAboutCars {
      */
     public SimpleInfoAboutCars(Vehicle vehicle){
         this.id = vehicle.getId();
+        this.version = vehicle.getVersion();
         this.name = vehicle.getName();
-        this.x = vehicle.getCoordinates().getX();
-        this.y = vehicle.getCoordinates().getY();
+        this.x = vehicle.getPosition().getX();
+        this.y = vehicle.getPosition().getY();
         this.type = vehicle.getType().name();
         this.enginePower = vehicle.getEnginePower();
         this.numberOfWheels = vehicle.getNumberOfWheels();
@@ -43,4 +50,25 @@ public class SimpleInfoAboutCars {
         this.namesUsers = vehicle.getUsers().stream().map(User::getUsername).collect(Collectors.toList());
         this.permissionToEdit = vehicle.getPermissionToEdit();
     }
+
+    /**
+     * Конструктор для создания объекта SimpleInfoAboutCars из проекции строки таблицы.
+     * @param row Строка, полученная из VehicleRepository
+     */
+    public SimpleInfoAboutCars(VehicleRow row){
+        this.id = row.getId();
+        this.version = row.getVersion();
+        this.name = row.getName();
+        this.x = row.getX();
+        this.y = row.getY();
+        this.type = row.getType();
+        this.enginePower = row.getEnginePower();
+        this.numberOfWheels = row.getNumberOfWheels();
+        this.capacity = row.getCapacity();
+        this.distanceTravelled = row.getDistanceTravelled();
+        this.fuelConsumption = row.getFuelConsumption();
+        this.fuelType = row.getFuelType();
+        this.namesUsers = row.getNamesUsers() == null ? new ArrayList<>() : Arrays.asList(row.getNamesUsers().split(OWNERS_SEPARATOR));
+        this.permissionToEdit = row.getPermissionToEdit();
+    }
 }
@@ -0,0 +1,24 @@
+package com.alwx.backend.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO ответа на запрос изменений таблицы тс с заданной версии.
+ */
+@Data
+@AllArgsConstructor
+public class VehicleChangeFeed {
+    /**
+     * Версия, до которой включительно учтены изменения.
+     */
+    private Long version;
+    /**
+     * Флаг, что журнал уже сжат и клиенту нужно перечитать таблицу целиком.
+     */
+    private Boolean fullReload;
+    private List<SimpleInfoAboutCars> upserted;
+    private List<Long> deleted;
+}
@@ -0,0 +1,33 @@
+package com.alwx.backend.dtos;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Набор изменений таблицы тс, сделанных в одной транзакции.
+ * Публикуется как событие приложения после коммита.
+ */
+@Getter
+public class VehicleChanges {
+    private final Set<Long> upserted = new LinkedHashSet<>();
+    private final Set<Long> deleted = new LinkedHashSet<>();
+
+    /**
+     * Версия таблицы (id последней записи журнала изменений) после этой транзакции.
+     */
+    @Setter
+    private Long version;
+
+    /**
+     * Версия таблицы перед этой транзакцией.
+     */
+    @Setter
+    private Long previousVersion;
+
+    public boolean isEmpty() {
+        return upserted.isEmpty() && deleted.isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.alwx.backend.dtos;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO кластера карты: плотная ячейка сетки с количеством тс по типам топлива.
+ */
+@Data
+@AllArgsConstructor
+public class VehicleMapCell {
+    private Integer cellX;
+    private Integer cellY;
+    /**
+     * Центр ячейки в координатах карты.
+     */
+    private Double centerX;
+    private Double centerY;
+    private Long count;
+    private Map<String, Long> fuelTypes;
+}
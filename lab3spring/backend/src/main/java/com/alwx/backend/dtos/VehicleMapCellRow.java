@@ -0,0 +1,11 @@
+package com.alwx.backend.dtos;
+
+/**
+ * Проекция агрегата карты: количество тс одного типа топлива в ячейке сетки.
+ */
+public interface VehicleMapCellRow {
+    Integer getCellX();
+    Integer getCellY();
+    String getFuelType();
+    Long getCount();
+}
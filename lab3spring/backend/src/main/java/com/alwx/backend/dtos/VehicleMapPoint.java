@@ -0,0 +1,25 @@
+package com.alwx.backend.dtos;
+
+import lombok.Data;
+
+/**
+ * DTO точки карты: тс из разреженной ячейки сетки.
+ */
+@Data
+public class VehicleMapPoint {
+    private Long id;
+    private String name;
+    private Long x;
+    private Double y;
+    private String type;
+    private String fuelType;
+
+    public VehicleMapPoint(VehicleMapPointRow row) {
+        this.id = row.getId();
+        this.name = row.getName();
+        this.x = row.getX();
+        this.y = row.getY();
+        this.type = row.getType();
+        this.fuelType = row.getFuelType();
+    }
+}
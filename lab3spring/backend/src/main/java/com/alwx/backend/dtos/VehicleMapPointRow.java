@@ -0,0 +1,13 @@
+package com.alwx.backend.dtos;
+
+/**
+ * Проекция точки карты: тс из разреженной ячейки сетки.
+ */
+public interface VehicleMapPointRow {
+    Long getId();
+    String getName();
+    Long getX();
+    Double getY();
+    String getType();
+    String getFuelType();
+}
@@ -0,0 +1,19 @@
+package com.alwx.backend.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO ответа карты: кластеры плотных ячеек и отдельные тс из разреженных.
+ */
+@Data
+@AllArgsConstructor
+public class VehicleMapView {
+    private Integer grid;
+    private Double cellWidth;
+    private Double cellHeight;
+    private List<VehicleMapCell> cells;
+    private List<VehicleMapPoint> points;
+}
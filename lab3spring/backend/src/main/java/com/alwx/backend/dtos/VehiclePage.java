@@ -0,0 +1,19 @@
+package com.alwx.backend.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO для одной страницы таблицы тс.
+ */
+@Data
+@AllArgsConstructor
+public class VehiclePage {
+    private List<SimpleInfoAboutCars> vehicles;
+    /**
+     * Курсор для запроса следующей страницы, null если страница последняя.
+     */
+    private String next;
+}
@@ -0,0 +1,27 @@
+package com.alwx.backend.dtos;
+
+/**
+ * Проекция строки таблицы тс. Заполняется одним sql-запросом без загрузки
+ * сущностей User/Role, имена владельцев приходят одной строкой через разделитель.
+ */
+public interface VehicleRow {
+    Long getId();
+    Long getVersion();
+    String getName();
+    Long getX();
+    Double getY();
+    String getType();
+    Double getEnginePower();
+    Long getNumberOfWheels();
+    Long getCapacity();
+    Double getDistanceTravelled();
+    Float getFuelConsumption();
+    String getFuelType();
+    Boolean getPermissionToEdit();
+
+    /**
+     * Имена владельцев, склеенные через {@link SimpleInfoAboutCars#OWNERS_SEPARATOR}.
+     * @return Имена владельцев или null, если владельцев нет
+     */
+    String getNamesUsers();
+}
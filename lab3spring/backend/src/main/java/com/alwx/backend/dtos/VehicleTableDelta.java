@@ -0,0 +1,25 @@
+package com.alwx.backend.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO сообщения /topic/tableUpdates: изменения таблицы тс, сделанные одной транзакцией.
+ * Если previousVersion совпадает с версией клиента, изменения применяются к локальной таблице,
+ * иначе клиент догружает пропущенное через /api/user/vehicles/changes.
+ */
+@Data
+@AllArgsConstructor
+public class VehicleTableDelta {
+    private String message;
+    private Long version;
+    private Long previousVersion;
+    /**
+     * Флаг, что изменений слишком много для одного сообщения и таблицу нужно перечитать.
+     */
+    private Boolean fullReload;
+    private List<SimpleInfoAboutCars> upserted;
+    private List<Long> deleted;
+}
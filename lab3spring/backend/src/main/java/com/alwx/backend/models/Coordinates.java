@@ -4,20 +4,34 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
+import com.alwx.backend.utils.SequenceIds;
+
 /**
  * Модель для координат.
  */
 @Entity
 @Data
-@Table(name = "coordinates")
+@Table(name = "coordinates", uniqueConstraints = @UniqueConstraint(name = Coordinates.XY_CONSTRAINT, columnNames = {"x", "y"}))
 public class Coordinates {
+    /**
+     * Имя ограничения уникальности пары (x, y), по нему же ищутся координаты.
+     */
+    public static final String XY_CONSTRAINT = "uk_coordinates_x_y";
+
+    /**
+     * Последовательность id координат, её же использует upsert в CoordinatesService.
+     */
+    public static final String SEQUENCE = "coordinates_seq";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id; 
 
     @NotNull
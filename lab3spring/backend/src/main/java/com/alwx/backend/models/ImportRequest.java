@@ -1,8 +1,10 @@
 package com.alwx.backend.models;
 
+import java.time.Instant;
 
 import com.alwx.backend.models.enums.StatusType;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -11,17 +13,21 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
+import com.alwx.backend.utils.SequenceIds;
+
 @Entity
 @Getter
 @Setter
 @Table(name = "import_request")
 public class ImportRequest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_request_seq")
+    @SequenceGenerator(name = "import_request_seq", sequenceName = "import_request_seq", allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -31,7 +37,36 @@ public class ImportRequest {
     @JoinColumn(name = "user_id")
     private User user;
 
+    /**
+     * Сохранённые тс. При импорте по частям - контрольная точка для продолжения.
+     */
     private Long count;
 
     private String uid;
+
+    /**
+     * Разобранные и записанные строки, в том числе ещё не закоммиченные.
+     */
+    private Long rowsProcessed;
+
+    private Long bytesRead;
+
+    private Long bytesTotal;
+
+    /**
+     * Ошибка, на которой остановился импорт.
+     */
+    @Column(length = 2000)
+    private String message;
+
+    /**
+     * Экземпляр сервера, в очереди или исполнителях которого находится импорт.
+     */
+    private String ownerInstance;
+
+    /**
+     * Последняя отметка экземпляра-владельца о том, что импорт у него в очереди или в работе.
+     * Ставится и сравнивается по часам бд, а не экземпляров.
+     */
+    private Instant heartbeatAt;
 }
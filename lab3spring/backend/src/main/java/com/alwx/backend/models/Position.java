@@ -0,0 +1,26 @@
+package com.alwx.backend.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Координаты тс, хранящиеся прямо в строке vehicle. Таблица тс и карта читают их без join.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Position {
+
+    @Min(-308)
+    @Column(name = "x")
+    private Long x;
+
+    @Column(name = "y")
+    private Double y;
+
+}
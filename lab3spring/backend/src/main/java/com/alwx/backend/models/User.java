@@ -4,6 +4,8 @@ import java.util.Collection;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import com.alwx.backend.utils.SequenceIds;
+
 
 /**
  * Сущность для взаимодействия с таблицей users
@@ -15,7 +17,8 @@ import lombok.Data;
 public class User {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "username", unique = true)
@@ -10,10 +10,12 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Data;
 
 import com.alwx.backend.models.enums.Action;
+import com.alwx.backend.utils.SequenceIds;
 
 /**
  * Модель для записи действий пользователя.
@@ -22,8 +24,14 @@ import com.alwx.backend.models.enums.Action;
 @Table(name = "user_actions")
 @Data
 public class UserAction {
+    /**
+     * Последовательность id записей журнала действий.
+     */
+    public static final String SEQUENCE = "user_actions_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -6,21 +6,28 @@ import java.util.Collection;
 
 import com.alwx.backend.models.enums.FuelType;
 import com.alwx.backend.models.enums.VehicleType;
+import com.alwx.backend.utils.SequenceIds;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -31,21 +38,64 @@ import lombok.Data;
  */
 @Entity
 @Data
-@Table(name = "vehicle")
+@Table(name = "vehicle", indexes = {
+    @Index(name = "idx_vehicle_name_id", columnList = "name, id"),
+    @Index(name = "idx_vehicle_engine_power_id", columnList = "enginePower, id"),
+    @Index(name = "idx_vehicle_type_id", columnList = "type, id"),
+    @Index(name = "idx_vehicle_number_of_wheels", columnList = "numberOfWheels"),
+    @Index(name = "idx_vehicle_coordinates_id", columnList = "coordinates_id"),
+    @Index(name = "idx_vehicle_x_y", columnList = "x, y")
+}, uniqueConstraints = @UniqueConstraint(name = Vehicle.NAME_CONSTRAINT, columnNames = "name"))
 public class Vehicle {
+    /**
+     * Имя ограничения уникальности названия тс.
+     */
+    public static final String NAME_CONSTRAINT = "uk_vehicle_name";
+
+    /**
+     * Имя внешнего ключа тс на координаты.
+     */
+    public static final String COORDINATES_FK = "fk_vehicle_coordinates";
+
+    /**
+     * Столбец внешнего ключа тс на координаты.
+     */
+    public static final String COORDINATES_COLUMN = "coordinates_id";
+
+    /**
+     * Последовательность id тс, пакетная вставка берёт из неё id через {@link SequenceIds}.
+     */
+    public static final String SEQUENCE = "vehicle_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = SequenceIds.ALLOCATION_SIZE)
     private Long id; 
 
+    /**
+     * Версия строки для оптимистичной блокировки, отдаётся клиенту в ETag.
+     */
+    @Version
+    private Long version;
+
     @NotNull
     @NotEmpty
     @Column(length = 255)
     private String name;
 
-    @ManyToOne(cascade = CascadeType.MERGE)
-    @JoinColumn(name = "coordinates_id")
+    /**
+     * Общая строка координат, заполняется только в режиме vehicles.coordinates.mode=shared.
+     */
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
+    @JoinColumn(name = COORDINATES_COLUMN, foreignKey = @ForeignKey(name = COORDINATES_FK))
     private Coordinates coordinates;
 
+    /**
+     * Координаты тс в его строке, заполняются в любом режиме.
+     */
+    @Embedded
+    private Position position;
+
     @NotNull
     private LocalDateTime creationDate;
 
@@ -81,7 +131,8 @@ public class Vehicle {
     @JoinTable(
         name = "vehicle_user",
         joinColumns = @JoinColumn(name = "vehicle_id"),
-        inverseJoinColumns = @JoinColumn(name = "user_id")
+        inverseJoinColumns = @JoinColumn(name = "user_id"),
+        indexes = @Index(name = "idx_vehicle_user_vehicle_id", columnList = "vehicle_id")
     )
     private Collection<User> users;
 
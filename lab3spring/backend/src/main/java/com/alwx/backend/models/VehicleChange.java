@@ -0,0 +1,34 @@
+package com.alwx.backend.models;
+
+import java.time.LocalDateTime;
+
+import com.alwx.backend.models.enums.ChangeOperation;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Запись журнала изменений таблицы тс. id записи служит версией таблицы:
+ * записи вставляются под advisory-блокировкой, поэтому порядок id совпадает с порядком коммитов.
+ */
+@Entity
+@Data
+@Table(name = "vehicle_change")
+public class VehicleChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long vehicleId;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeOperation operation;
+
+    private LocalDateTime timestamp;
+}
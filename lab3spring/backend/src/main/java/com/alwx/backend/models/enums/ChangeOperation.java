@@ -0,0 +1,9 @@
+package com.alwx.backend.models.enums;
+
+/**
+ * Перечисление операций над тс, записываемых в журнал изменений.
+ */
+public enum ChangeOperation {
+    UPSERT,
+    DELETE;
+}
@@ -1,6 +1,9 @@
 package com.alwx.backend.models.enums;
 
 public enum StatusType {
+    QUEUED,
+    RUNNING,
+    PARTIAL,
     DONE,
     ERROR;
 }
@@ -0,0 +1,36 @@
+package com.alwx.backend.models.enums;
+
+/**
+ * Перечисление полей, по которым допускается постраничная (keyset) выборка тс.
+ * Для каждого поля в бд есть составной индекс (поле, id).
+ */
+public enum VehicleSortField {
+    ID("id"),
+    NAME("name"),
+    ENGINE_POWER("enginePower");
+
+    private final String paramName;
+
+    VehicleSortField(String paramName) {
+        this.paramName = paramName;
+    }
+
+    /**
+     * Преобразует параметр запроса в поле сортировки.
+     * @param value Строка, представляющая поле (имя параметра или имя константы)
+     * @return Поле сортировки
+     * @throws IllegalArgumentException Если строка не представляет допустимое поле
+     */
+    public static VehicleSortField fromString(String value) {
+        for (VehicleSortField field : VehicleSortField.values()) {
+            if (field.paramName.equalsIgnoreCase(value) || field.name().equalsIgnoreCase(value)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Нет поля сортировки: " + value);
+    }
+
+    public String getParamName() {
+        return paramName;
+    }
+}
@@ -1,10 +1,15 @@
 package com.alwx.backend.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.alwx.backend.models.ImportRequest;
 
@@ -14,4 +19,35 @@ public interface ImportRequestRepository extends JpaRepository<ImportRequest, Lo
     List<ImportRequest> findAllByUserId(Long userId);
     Optional<ImportRequest> findByUserId(Long userId);
     Optional<ImportRequest> findByUid(String uid);
+
+    @Modifying
+    @Query("update ImportRequest r set r.count = r.count + :added where r.id = :id and r.ownerInstance = :owner")
+    int addCount(@Param("id") Long id, @Param("added") long added, @Param("owner") String owner);
+
+    @Modifying
+    @Query("update ImportRequest r set r.rowsProcessed = :rows, r.bytesRead = :bytes where r.id = :id and r.ownerInstance = :owner")
+    int updateProgress(@Param("id") Long id, @Param("rows") long rows, @Param("bytes") long bytes, @Param("owner") String owner);
+
+    /**
+     * Делает экземпляр владельцем заявки и отмечает её временем бд.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "update import_request set owner_instance = :owner, heartbeat_at = now() where id = :id", nativeQuery = true)
+    int own(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * Отмечает временем бд заявки экземпляра в заданных статусах.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update import_request set heartbeat_at = now() where owner_instance = :owner and status in (:statuses)", nativeQuery = true)
+    int heartbeat(@Param("owner") String owner, @Param("statuses") Collection<String> statuses);
+
+    /**
+     * Переводит заявки, не отмеченные дольше staleAfterMs по часам бд, в статус to.
+     */
+    @Modifying
+    @Query(value = "update import_request set status = :to where status in (:statuses) "
+        + "and (heartbeat_at is null or heartbeat_at < now() - :staleAfterMs * interval '1 millisecond')", nativeQuery = true)
+    int replaceStale(@Param("statuses") Collection<String> statuses, @Param("to") String to, @Param("staleAfterMs") long staleAfterMs);
 }
@@ -1,8 +1,10 @@
 package com.alwx.backend.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,5 +17,7 @@ import com.alwx.backend.models.User;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    @EntityGraph(attributePaths = "roles")
+    List<User> findAllByUsernameIn(Collection<String> usernames);
     List<Optional<User>> findByRoles(Role role);
 }
@@ -0,0 +1,27 @@
+package com.alwx.backend.repositories;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.alwx.backend.models.VehicleChange;
+
+/**
+ * Репозиторий для работы с журналом изменений тс.
+ */
+@Repository
+public interface VehicleChangeRepository extends JpaRepository<VehicleChange, Long> {
+    List<VehicleChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    Optional<VehicleChange> findFirstByOrderByIdAsc();
+    Optional<VehicleChange> findFirstByOrderByIdDesc();
+
+    @Modifying
+    @Query("delete from VehicleChange c where c.id < :id")
+    int deleteOlderThan(@Param("id") Long id);
+}
@@ -1,21 +1,196 @@
 package com.alwx.backend.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.alwx.backend.dtos.VehicleMapCellRow;
+import com.alwx.backend.dtos.VehicleMapPointRow;
+import com.alwx.backend.dtos.VehicleRow;
 import com.alwx.backend.models.Vehicle;
 
+import jakarta.persistence.QueryHint;
+
 
 /**
  * Репозиторий для работы с автомобилями.
  */
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long>  {
+
+    /**
+     * Выборка колонок, нужных таблице тс. Владельцы агрегируются подзапросом,
+     * координаты хранятся в строке тс, поэтому вся строка читается одним запросом
+     * без join и без загрузки User и Role.
+     */
+    String ROW_SELECT = "select v.id as \"id\", v.version as \"version\", v.name as \"name\", v.x as \"x\", v.y as \"y\", v.type as \"type\", "
+        + "v.engine_power as \"enginePower\", v.number_of_wheels as \"numberOfWheels\", v.capacity as \"capacity\", "
+        + "v.distance_travelled as \"distanceTravelled\", v.fuel_consumption as \"fuelConsumption\", "
+        + "v.fuel_type as \"fuelType\", v.permission_to_edit as \"permissionToEdit\", "
+        + "(select string_agg(u.username, chr(31) order by u.username) from vehicle_user vu "
+        + "join users u on u.id = vu.user_id where vu.vehicle_id = v.id) as \"namesUsers\" "
+        + "from vehicle v ";
+
+    /**
+     * Номер ячейки сетки карты по x и y, точки на правой/верхней границе попадают в последнюю ячейку.
+     */
+    String MAP_CELL_X = "least(cast(floor((v.x - :minX) / :cellWidth) as integer), :grid - 1)";
+    String MAP_CELL_Y = "least(cast(floor((v.y - :minY) / :cellHeight) as integer), :grid - 1)";
+
+    /**
+     * Условие попадания в область карты, использует индекс idx_vehicle_x_y.
+     */
+    String MAP_BBOX = "from vehicle v "
+        + "where v.x between :minX and :maxX and v.y between :minY and :maxY ";
+
     Optional<Vehicle> findByName(String name);
     List<Vehicle> findByCoordinatesId(Long coordinatesId);
-    List<Vehicle> findAllByCoordinatesId(Long coordinatesId);
-    Boolean existsByName(String name);
+
+    /**
+     * Названия из списка, которые уже заняты.
+     * @param names Названия тс
+     * @return Занятые названия
+     */
+    @Query("select v.name from Vehicle v where v.name in :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    /**
+     * Все строки таблицы тс.
+     * @return Строки, отсортированные по id
+     */
+    @Query(value = ROW_SELECT + "order by v.id", nativeQuery = true)
+    List<VehicleRow> findAllRows();
+
+    /**
+     * Строки таблицы тс с заданными id.
+     * @param ids id тс, не пустой список
+     * @return Строки существующих тс, отсортированные по id
+     */
+    @Query(value = ROW_SELECT + "where v.id in (:ids) order by v.id", nativeQuery = true)
+    List<VehicleRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Все строки таблицы тс, читаемые серверным курсором порциями по 500 строк.
+     * Должен вызываться внутри транзакции, поток нужно закрыть после чтения.
+     * @return Поток строк, отсортированных по id
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = ROW_SELECT + "order by v.id", nativeQuery = true)
+    Stream<VehicleRow> streamAllRows();
+
+    /**
+     * Keyset-выборка страницы тс, отсортированных по id.
+     * @param afterId id последней строки предыдущей страницы
+     * @param limit Размер страницы
+     * @return Страница тс
+     */
+    @Query(value = ROW_SELECT + "where v.id > :afterId order by v.id limit :limit", nativeQuery = true)
+    List<VehicleRow> findPageOrderById(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Keyset-выборка страницы тс, отсортированных по (name, id).
+     * @param afterName Имя последней строки предыдущей страницы
+     * @param afterId id последней строки предыдущей страницы
+     * @param limit Размер страницы
+     * @return Страница тс
+     */
+    @Query(value = ROW_SELECT + "where (v.name, v.id) > (:afterName, :afterId) order by v.name, v.id limit :limit", nativeQuery = true)
+    List<VehicleRow> findPageOrderByName(@Param("afterName") String afterName, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Keyset-выборка страницы тс, отсортированных по (enginePower, id).
+     * @param afterPower Мощность последней строки предыдущей страницы
+     * @param afterId id последней строки предыдущей страницы
+     * @param limit Размер страницы
+     * @return Страница тс
+     */
+    @Query(value = ROW_SELECT + "where (v.engine_power, v.id) > (:afterPower, :afterId) order by v.engine_power, v.id limit :limit", nativeQuery = true)
+    List<VehicleRow> findPageOrderByEnginePower(@Param("afterPower") Double afterPower, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Тс с минимальной мощностью двигателя (при равенстве - с минимальным id).
+     * @return Одна строка или пустой список, если таблица пуста
+     */
+    @Query(value = ROW_SELECT + "order by v.engine_power, v.id limit 1", nativeQuery = true)
+    List<VehicleRow> findMinEnginePower();
+
+    /**
+     * Keyset-выборка тс, имя которых начинается с префикса (без учёта регистра).
+     * Использует индекс по lower(name) text_pattern_ops.
+     * @param pattern Шаблон like: экранированный префикс и '%'
+     * @param afterId id последней строки предыдущей страницы
+     * @param limit Размер страницы
+     * @return Страница тс
+     */
+    @Query(value = ROW_SELECT + "where lower(v.name) like lower(:pattern) and v.id > :afterId order by v.id limit :limit", nativeQuery = true)
+    List<VehicleRow> findPageByNamePrefix(@Param("pattern") String pattern, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Keyset-выборка тс заданного типа.
+     * @param type Тип тс (имя константы VehicleType)
+     * @param afterId id последней строки предыдущей страницы
+     * @param limit Размер страницы
+     * @return Страница тс
+     */
+    @Query(value = ROW_SELECT + "where v.type = :type and v.id > :afterId order by v.id limit :limit", nativeQuery = true)
+    List<VehicleRow> findPageByType(@Param("type") String type, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Keyset-выборка тс с количеством колёс в диапазоне [min, max].
+     * @param min Минимальное количество колёс
+     * @param max Максимальное количество колёс
+     * @param afterId id последней строки предыдущей страницы
+     * @param limit Размер страницы
+     * @return Страница тс
+     */
+    @Query(value = ROW_SELECT + "where v.number_of_wheels between :min and :max and v.id > :afterId order by v.id limit :limit", nativeQuery = true)
+    List<VehicleRow> findPageByWheelsRange(@Param("min") Long min, @Param("max") Long max, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Количество тс по ячейкам сетки и типам топлива в заданной области.
+     * @param minX Левая граница области
+     * @param maxX Правая граница области
+     * @param minY Нижняя граница области
+     * @param maxY Верхняя граница области
+     * @param grid Количество ячеек по каждой оси
+     * @param cellWidth Ширина ячейки
+     * @param cellHeight Высота ячейки
+     * @return Непустые пары (ячейка, тип топлива) с количеством тс
+     */
+    @Query(value = "select " + MAP_CELL_X + " as \"cellX\", " + MAP_CELL_Y + " as \"cellY\", "
+        + "v.fuel_type as \"fuelType\", count(*) as \"count\" " + MAP_BBOX
+        + "group by 1, 2, 3", nativeQuery = true)
+    List<VehicleMapCellRow> findMapCells(@Param("minX") Long minX, @Param("maxX") Long maxX,
+        @Param("minY") Double minY, @Param("maxY") Double maxY,
+        @Param("grid") int grid, @Param("cellWidth") double cellWidth, @Param("cellHeight") double cellHeight);
+
+    /**
+     * Тс из разреженных ячеек сетки в заданной области.
+     * @param minX Левая граница области
+     * @param maxX Правая граница области
+     * @param minY Нижняя граница области
+     * @param maxY Верхняя граница области
+     * @param grid Количество ячеек по каждой оси
+     * @param cellWidth Ширина ячейки
+     * @param cellHeight Высота ячейки
+     * @param sparse Максимальное количество тс в разреженной ячейке
+     * @return Точки, отсортированные по id
+     */
+    @Query(value = "select p.id as \"id\", p.name as \"name\", p.x as \"x\", p.y as \"y\", "
+        + "p.type as \"type\", p.fuel_type as \"fuelType\" from ("
+        + "select v.id, v.name, v.x, v.y, v.type, v.fuel_type, "
+        + "count(*) over (partition by " + MAP_CELL_X + ", " + MAP_CELL_Y + ") as cell_count " + MAP_BBOX
+        + ") p where p.cell_count <= :sparse order by p.id", nativeQuery = true)
+    List<VehicleMapPointRow> findMapPoints(@Param("minX") Long minX, @Param("maxX") Long maxX,
+        @Param("minY") Double minY, @Param("maxY") Double maxY,
+        @Param("grid") int grid, @Param("cellWidth") double cellWidth, @Param("cellHeight") double cellHeight,
+        @Param("sparse") int sparse);
 }
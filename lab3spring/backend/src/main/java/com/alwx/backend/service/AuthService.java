@@ -21,6 +21,7 @@ import com.alwx.backend.dtos.UserWithJwtResponse;
 import com.alwx.backend.dtos.RegUserDto;
 import com.alwx.backend.dtos.UserDto;
 import com.alwx.backend.models.User;
+import com.alwx.backend.utils.TransactionRetrier;
 import com.alwx.backend.utils.UserError;
 import com.alwx.backend.utils.jwt.JwtTokenUtil;
 
@@ -83,7 +84,10 @@ public class AuthService {
             User user = userService.createNewUser(registrationUserDto);
 
             return ResponseEntity.ok(new UserDto(user.getId(), user.getUsername()));
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
+            if (TransactionRetrier.isRetryable(e)) {
+                throw e;
+            }
             return new ResponseEntity<>(new AppError(
                 HttpStatus.BAD_REQUEST.value(),
                 "Пользователь уже существует"),
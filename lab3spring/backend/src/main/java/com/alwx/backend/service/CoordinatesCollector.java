@@ -0,0 +1,96 @@
+package com.alwx.backend.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Фоновая сборка координат, на которые не ссылается ни одно тс. Изменение и удаление тс
+ * не проверяют, остались ли у старых координат другие тс, - такие строки удаляются здесь
+ * порциями, каждая порция одним запросом с anti-join в своей короткой транзакции.
+ * Транзакции, ссылающиеся на координаты, блокируют их через {@link CoordinatesService#resolveIds}
+ * (for key share) до своего коммита; такие строки пропускаются (skip locked) и будут рассмотрены
+ * при следующем запуске, когда ссылка на них уже закоммичена.
+ */
+@Service
+public class CoordinatesCollector {
+    private static final Logger logger = LoggerFactory.getLogger(CoordinatesCollector.class);
+
+    /**
+     * Метрика количества удалённых координат.
+     */
+    public static final String RECLAIMED_METRIC = "coordinates.orphans.reclaimed";
+
+    /**
+     * Метрика длительности одного запуска сборки.
+     */
+    public static final String DURATION_METRIC = "coordinates.orphans.collect";
+
+    private static final String DELETE_ORPHANS_SQL = """
+        delete from coordinates where id in (
+            select c.id from coordinates c
+            where not exists (select 1 from vehicle v where v.coordinates_id = c.id)
+            limit ? for update skip locked
+        )
+        returning id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CoordinatesService coordinatesService;
+    private final Counter reclaimed;
+    private final Timer duration;
+    private final int batchSize;
+
+    public CoordinatesCollector(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            CoordinatesService coordinatesService,
+            MeterRegistry meterRegistry,
+            @Value("${vehicles.coordinates.collect-batch:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.coordinatesService = coordinatesService;
+        this.reclaimed = meterRegistry.counter(RECLAIMED_METRIC);
+        this.duration = meterRegistry.timer(DURATION_METRIC);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Удаляет все координаты без тс порциями по vehicles.coordinates.collect-batch строк.
+     * @return Количество удалённых координат
+     */
+    @Scheduled(fixedDelayString = "${vehicles.coordinates.collect-interval-ms:60000}")
+    public long collect() {
+        Timer.Sample sample = Timer.start();
+        long total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = jdbcTemplate.queryForList(DELETE_ORPHANS_SQL, Long.class, batchSize);
+                    coordinatesService.evict(ids);
+                    return ids.size();
+                });
+                total += deleted;
+                reclaimed.increment(deleted);
+            } while (deleted == batchSize);
+        } catch (DataAccessException e) {
+            logger.warn("Сборка координат без тс прервана: {}", e.getMessage());
+        } finally {
+            sample.stop(duration);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,378 @@
+package com.alwx.backend.service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.alwx.backend.models.Coordinates;
+import com.alwx.backend.models.Position;
+import com.alwx.backend.models.Vehicle;
+import com.alwx.backend.repositories.CoordinatesRepositury;
+import com.alwx.backend.utils.SequenceIds;
+import com.alwx.backend.utils.locks.StaleSnapshotLockException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Сервис координат. Координаты тс всегда хранятся в его строке ({@link Position}), таблица тс
+ * и карта читают только их. Режим vehicles.coordinates.mode определяет, ведётся ли кроме этого
+ * общая таблица coordinates: в режиме embedded тс не ссылается на неё и запись координат не стоит
+ * запросов, в режиме shared (по умолчанию) тс ссылается на общую строку координат.
+ * Пара (x, y) в общей таблице уникальна, id координат находится вставкой
+ * insert ... on conflict do nothing returning id, а известные пары берутся из
+ * ограниченного LRU-кеша без запросов к бд.
+ * Недостающие пары вставляются на соединении вызывающей транзакции и попадают в кеш после её
+ * коммита. Транзакции, ссылающиеся на координаты, идут в READ COMMITTED: каждый запрос берёт
+ * новый снимок, поэтому пары, вставленные параллельно, находятся повтором вставки, а не дают
+ * ошибку сериализации, как в REPEATABLE READ.
+ * Найденные id, в том числе из кеша, блокируются в вызывающей транзакции (for key share) до её
+ * коммита, поэтому {@link CoordinatesCollector} не удалит строку, на которую вот-вот сошлётся
+ * новое тс. Та же блокировка проверяет кеш: строки, удалённые сборщиком или другим экземпляром
+ * сервера, вычищаются из кеша и создаются заново. Удаляемые координаты вычищаются из кеша сразу
+ * и ещё раз после завершения транзакции.
+ */
+@Service
+public class CoordinatesService {
+    /**
+     * Метрика обращений к кешу координат, тег result=hit|miss.
+     */
+    public static final String CACHE_METRIC = "coordinates.cache";
+
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    /**
+     * Вставляет недостающие пары и возвращает id всех пар. Пары, вставленные конкурентной
+     * транзакцией после начала запроса, не видны в его снимке и не возвращаются.
+     */
+    private static final String UPSERT_SQL = """
+        with input (id, x, y) as (select * from unnest(?::bigint[], ?::bigint[], ?::float8[])),
+        inserted as (
+            insert into coordinates (id, x, y)
+            select id, x, y from input order by x, y
+            on conflict (x, y) do nothing
+            returning id, x, y
+        )
+        select id, x, y from inserted
+        union all
+        select c.id, c.x, c.y from coordinates c join input i on c.x = i.x and c.y = i.y
+        """;
+
+    /**
+     * Блокирует координаты до конца транзакции от удаления и возвращает id строк, которые
+     * видны в её снимке.
+     */
+    private static final String PIN_SQL = "select id from coordinates where id = any(?) for key share";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIds sequenceIds;
+    private final CoordinatesRepositury coordinatesRepositury;
+    private final Map<List<Object>, Long> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final boolean shared;
+
+    public CoordinatesService(
+            JdbcTemplate jdbcTemplate,
+            SequenceIds sequenceIds,
+            CoordinatesRepositury coordinatesRepositury,
+            MeterRegistry meterRegistry,
+            @Value("${vehicles.coordinates.cache-size:10000}") int cacheSize,
+            @Value("${vehicles.coordinates.mode:shared}") String mode) {
+        if (!"shared".equals(mode) && !"embedded".equals(mode)) {
+            throw new IllegalArgumentException("Неизвестный режим координат: " + mode);
+        }
+        this.shared = "shared".equals(mode);
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceIds = sequenceIds;
+        this.coordinatesRepositury = coordinatesRepositury;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.hits = meterRegistry.counter(CACHE_METRIC, "result", "hit");
+        this.misses = meterRegistry.counter(CACHE_METRIC, "result", "miss");
+    }
+
+    /**
+     * Ведётся ли общая таблица координат.
+     * @return true в режиме shared
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Записывает координаты тс, в режиме shared также привязывает тс к общей строке координат.
+     * @param vehicle Тс
+     * @param x Координата x
+     * @param y Координата y
+     */
+    public void place(Vehicle vehicle, Long x, Double y) {
+        vehicle.setPosition(new Position(x, y));
+        vehicle.setCoordinates(shared ? resolve(x, y) : null);
+    }
+
+    /**
+     * Id общей строки координат тс без загрузки самих координат.
+     * @param vehicle Тс
+     * @return Id координат или null, если тс не ссылается на общую таблицу
+     */
+    public Long idOf(Vehicle vehicle) {
+        return vehicle.getCoordinates() == null ? null : vehicle.getCoordinates().getId();
+    }
+
+    /**
+     * Находит или создаёт координаты. Возвращает ссылку на сущность без загрузки из бд.
+     * @param x Координата x
+     * @param y Координата y
+     * @return Координаты (x, y)
+     */
+    public Coordinates resolve(Long x, Double y) {
+        return coordinatesRepositury.getReferenceById(resolveIds(List.of(key(x, y))).get(key(x, y)));
+    }
+
+    /**
+     * Находит или создаёт координаты для всех пар. Пары, которых нет в кеше, вставляются
+     * одним запросом в текущей транзакции. Внутри транзакции все id блокируются до её коммита;
+     * пропавшие строки создаются заново.
+     * @param keys Пары (x, y), см. {@link #key(Long, Double)}
+     * @return id координат по паре
+     * @throws StaleSnapshotLockException если строки координат так и не стали видны транзакции
+     * (REPEATABLE READ со снимком, взятым до их создания); транзакцию нужно повторить
+     */
+    public Map<List<Object>, Long> resolveIds(Collection<List<Object>> keys) {
+        Map<List<Object>, Long> ids = new HashMap<>();
+        Set<List<Object>> missing = new LinkedHashSet<>(keys);
+        for (int attempt = 0; !missing.isEmpty(); attempt++) {
+            if (attempt == MAX_UPSERT_ATTEMPTS) {
+                throw new StaleSnapshotLockException("Координаты удалены или созданы после начала транзакции");
+            }
+            Map<List<Object>, Long> found = lookup(missing);
+            Set<Long> lost = pin(found.values());
+            if (!lost.isEmpty()) {
+                evict(lost);
+                found.values().removeIf(lost::contains);
+            }
+            ids.putAll(found);
+            missing.removeAll(found.keySet());
+        }
+        return ids;
+    }
+
+    /**
+     * Берёт id пар из кеша, недостающие пары вставляет в текущей транзакции.
+     */
+    private Map<List<Object>, Long> lookup(Collection<List<Object>> keys) {
+        Map<List<Object>, Long> ids = new HashMap<>();
+        Set<List<Object>> missing = new LinkedHashSet<>();
+        synchronized (cache) {
+            for (List<Object> key : keys) {
+                Long id = cache.get(key);
+                if (id != null) {
+                    ids.put(key, id);
+                } else {
+                    missing.add(key);
+                }
+            }
+        }
+        hits.increment(ids.size());
+        misses.increment(missing.size());
+
+        if (!missing.isEmpty()) {
+            Map<List<Object>, Long> created = upsertAll(missing);
+            putToCacheAfterCommit(created);
+            ids.putAll(created);
+        }
+        return ids;
+    }
+
+    /**
+     * Убирает координаты из кеша сейчас и после завершения текущей транзакции,
+     * чтобы параллельный запрос не успел вернуть их в кеш.
+     * @param ids Id удаляемых координат
+     */
+    public void evict(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> evicted = new LinkedHashSet<>(ids);
+        removeFromCache(evicted);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeFromCache(evicted);
+                }
+            });
+        }
+    }
+
+    /**
+     * Очищает кеш, если после обращения к удалённым координатам не удалось определить их id.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Ключ пары координат в кеше. Бд считает -0.0 и 0.0 одной парой, поэтому y
+     * приводится к 0.0 (-0.0 + 0.0 == 0.0), иначе ключ запроса не совпадёт с ключом,
+     * прочитанным из бд.
+     * @param x Координата x
+     * @param y Координата y
+     * @return Ключ (x, y)
+     */
+    public static List<Object> key(Long x, Double y) {
+        return List.of(x, y + 0.0);
+    }
+
+    /**
+     * Вставляет пары с повтором: каждый запрос в READ COMMITTED берёт новый снимок
+     * и на следующей попытке видит пары, вставленные параллельно.
+     */
+    private Map<List<Object>, Long> upsertAll(Set<List<Object>> keys) {
+        Set<List<Object>> missing = new LinkedHashSet<>(keys);
+        Map<List<Object>, Long> ids = new HashMap<>();
+        for (int attempt = 0; !missing.isEmpty(); attempt++) {
+            if (attempt == MAX_UPSERT_ATTEMPTS) {
+                throw new CannotAcquireLockException("Координаты одновременно изменяются другой транзакцией");
+            }
+            Map<List<Object>, Long> found = upsert(missing);
+            ids.putAll(found);
+            missing.removeAll(found.keySet());
+        }
+        return ids;
+    }
+
+    /**
+     * Блокирует id в текущей транзакции, уже заблокированные ею не запрашиваются повторно.
+     * @param ids Id координат
+     * @return Id, строк которых нет в снимке транзакции
+     */
+    private Set<Long> pin(Collection<Long> ids) {
+        Set<Long> pinned = pinned();
+        if (pinned == null) {
+            return Set.of();
+        }
+        Set<Long> lost = new LinkedHashSet<>(ids);
+        lost.removeAll(pinned);
+        if (lost.isEmpty()) {
+            return lost;
+        }
+        Long[] requested = lost.toArray(new Long[0]);
+        jdbcTemplate.query(
+            con -> {
+                PreparedStatement ps = con.prepareStatement(PIN_SQL);
+                ps.setArray(1, con.createArrayOf("bigint", requested));
+                return ps;
+            },
+            (RowCallbackHandler) rs -> {
+                long id = rs.getLong(1);
+                lost.remove(id);
+                pinned.add(id);
+            });
+        return lost;
+    }
+
+    /**
+     * Id координат, уже заблокированных текущей транзакцией.
+     * @return Id или null вне транзакции
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Long> pinned() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        Set<Long> pinned = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pinned == null) {
+            Set<Long> created = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CoordinatesService.this);
+                }
+            });
+            pinned = created;
+        }
+        return pinned;
+    }
+
+    private Map<List<Object>, Long> upsert(Collection<List<Object>> keys) {
+        List<List<Object>> input = new ArrayList<>(keys);
+        List<Long> newIds = sequenceIds.next(Coordinates.SEQUENCE, input.size());
+        Map<List<Object>, Long> found = new HashMap<>();
+        jdbcTemplate.query(
+            con -> {
+                Long[] ids = newIds.toArray(new Long[0]);
+                Long[] xs = new Long[input.size()];
+                Double[] ys = new Double[input.size()];
+                for (int i = 0; i < input.size(); i++) {
+                    xs[i] = (Long) input.get(i).get(0);
+                    ys[i] = (Double) input.get(i).get(1);
+                }
+                Array idArray = con.createArrayOf("bigint", ids);
+                Array xArray = con.createArrayOf("bigint", xs);
+                Array yArray = con.createArrayOf("float8", ys);
+                PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+                ps.setArray(1, idArray);
+                ps.setArray(2, xArray);
+                ps.setArray(3, yArray);
+                return ps;
+            },
+            rs -> {
+                found.put(key(rs.getLong("x"), rs.getDouble("y")), rs.getLong("id"));
+            });
+        return found;
+    }
+
+    /**
+     * Кладёт id в кеш после коммита текущей транзакции: до него вставленные ею строки не видны
+     * другим транзакциям, а при откате их нет.
+     */
+    private void putToCacheAfterCommit(Map<List<Object>, Long> found) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            putToCache(found);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                putToCache(found);
+            }
+        });
+    }
+
+    private void putToCache(Map<List<Object>, Long> found) {
+        synchronized (cache) {
+            cache.putAll(found);
+        }
+    }
+
+    private void removeFromCache(Set<Long> ids) {
+        synchronized (cache) {
+            cache.values().removeIf(ids::contains);
+        }
+    }
+}
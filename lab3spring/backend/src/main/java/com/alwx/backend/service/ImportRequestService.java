@@ -5,15 +5,26 @@ import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.alwx.backend.controllers.exceptionHandlers.exceptions.BusinessException;
@@ -39,11 +50,26 @@ import io.minio.errors.InvalidResponseException;
 import io.minio.errors.MinioException;
 import io.minio.errors.ServerException;
 import io.minio.errors.XmlParserException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Заявки импорта. Заявка в очереди или в работе принадлежит экземпляру сервера, который её принял
+ * или продолжил: он раз в vehicles.import.heartbeat-interval-ms отмечает свои такие заявки
+ * отдельным потоком, а заявки без отметки дольше vehicles.import.stale-after-ms любой экземпляр
+ * считает прерванными и переводит в PARTIAL. Отметки ставятся и сравниваются по часам бд,
+ * поэтому расхождение часов экземпляров не прерывает живые импорты. Ход, контрольная точка и итог пишутся только экземпляром-владельцем,
+ * поэтому импорт, продолженный другим экземпляром, прежним уже не записывается.
+ */
 @Service
 @RequiredArgsConstructor
 public class ImportRequestService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportRequestService.class);
+
+    private static final List<String> ACTIVE = List.of(StatusType.QUEUED.name(), StatusType.RUNNING.name());
+
+    private static final String NOT_OWNED = "Импорт продолжен другим экземпляром сервера";
 
     private final ImportRequestRepository importRequestRepository;
     private final UserRepository userRepository;
@@ -54,6 +80,22 @@ public class ImportRequestService {
     @Value("${BUCKET}")
     private String bucket;
 
+    @Value("${vehicles.import.stale-after-ms:60000}")
+    private long staleAfterMs;
+
+    @Value("${vehicles.import.heartbeat-interval-ms:10000}")
+    private long heartbeatIntervalMs;
+
+    /**
+     * Свой поток отметок: общий поток @Scheduled может задержать отметку задачами других сервисов.
+     */
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Id этого экземпляра сервера, владельца принятых им импортов.
+     */
+    private final String instance = UUID.randomUUID().toString();
+
     public void saveT(StatusType statusType, String token, Long count, String fileUid) {
         if (jwtTokenUtil.getUsername(token) != null) {
             User user = userRepository.findByUsername(jwtTokenUtil.getUsername(token)).get();
@@ -66,6 +108,188 @@ public class ImportRequestService {
         }
     }
 
+    /**
+     * Ставит импорт в очередь: файл уже сохранён в MinIO, заявка создаётся в статусе QUEUED.
+     * @param token Токен без префикса Bearer
+     * @param fileUid Имя файла в MinIO
+     * @param size Размер файла в байтах
+     * @return Созданная заявка
+     */
+    @Transactional
+    public ImportRequest queue(String token, String fileUid, long size) {
+        ImportRequest importRequest = new ImportRequest();
+        importRequest.setCount(0l);
+        importRequest.setStatus(StatusType.QUEUED);
+        importRequest.setUser(userRepository.findByUsername(jwtTokenUtil.getUsername(token)).get());
+        importRequest.setUid(fileUid);
+        importRequest.setRowsProcessed(0l);
+        importRequest.setBytesRead(0l);
+        importRequest.setBytesTotal(size);
+        importRequest.setOwnerInstance(instance);
+        importRequest = importRequestRepository.save(importRequest);
+        importRequestRepository.own(importRequest.getId(), instance);
+        return importRequest;
+    }
+
+    /**
+     * Переводит заявку из очереди в RUNNING перед запуском импорта.
+     * @param id Id заявки
+     * @return Заявка, count которой - контрольная точка
+     * @throws BusinessException если заявка уже не в очереди этого экземпляра
+     */
+    @Transactional
+    public ImportRequest start(Long id) {
+        ImportRequest importRequest = importRequestRepository.findById(id)
+            .orElseThrow(() -> new BusinessException("Импорт не найден"));
+        if (importRequest.getStatus() != StatusType.QUEUED || !instance.equals(importRequest.getOwnerInstance())) {
+            throw new BusinessException(NOT_OWNED);
+        }
+        importRequest.setStatus(StatusType.RUNNING);
+        importRequest.setRowsProcessed(importRequest.getCount());
+        importRequest.setBytesRead(0l);
+        importRequest.setMessage(null);
+        importRequestRepository.own(id, instance);
+        return importRequest;
+    }
+
+    /**
+     * Сдвигает контрольную точку заявки. Вызывается в транзакции части импорта
+     * (vehicles.import.atomicity=chunk), поэтому точка фиксируется вместе с её тс.
+     * @param id Id заявки
+     * @param added Количество сохранённых записей
+     * @throws BusinessException если импорт продолжен другим экземпляром, транзакция части откатывается
+     */
+    public void advance(Long id, long added) {
+        if (importRequestRepository.addCount(id, added, instance) == 0) {
+            throw new BusinessException(NOT_OWNED);
+        }
+    }
+
+    /**
+     * Сохраняет ход импорта в отдельной транзакции, чтобы он был виден до коммита самого импорта.
+     * @param id Id заявки
+     * @param rows Обработанные строки
+     * @param bytes Прочитанные байты файла
+     * @throws BusinessException если импорт продолжен другим экземпляром
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void progress(Long id, long rows, long bytes) {
+        if (importRequestRepository.updateProgress(id, rows, bytes, instance) == 0) {
+            throw new BusinessException(NOT_OWNED);
+        }
+    }
+
+    /**
+     * Завершает импорт.
+     * @param id Id заявки
+     * @param statusType DONE, PARTIAL или ERROR
+     * @param count Количество сохранённых тс
+     * @param rows Обработанные строки
+     * @param bytes Прочитанные байты файла
+     * @param message Ошибка или null
+     * @return false, если заявка принадлежит другому экземпляру и не изменена
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean finish(Long id, StatusType statusType, long count, long rows, long bytes, String message) {
+        return importRequestRepository.findById(id).filter(this::isOwned).map(importRequest -> {
+            importRequest.setStatus(statusType);
+            importRequest.setCount(count);
+            importRequest.setRowsProcessed(rows);
+            importRequest.setBytesRead(bytes);
+            importRequest.setMessage(message);
+            return true;
+        }).orElse(false);
+    }
+
+    /**
+     * Переводит импорт, который не удалось запустить, в PARTIAL с сохранением контрольной точки,
+     * чтобы его можно было продолжить.
+     * @param id Id заявки
+     * @param message Ошибка
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void interrupt(Long id, String message) {
+        importRequestRepository.findById(id).filter(this::isOwned).ifPresent(importRequest -> {
+            importRequest.setStatus(StatusType.PARTIAL);
+            importRequest.setMessage(message);
+        });
+    }
+
+    /**
+     * Ставит прерванный импорт обратно в очередь для продолжения с контрольной точки.
+     * Продолжить можно только свой импорт (админ - любой) в статусе PARTIAL.
+     * @param id Id заявки
+     * @param token Токен без префикса Bearer
+     * @return Заявка
+     */
+    @Transactional
+    public ImportRequest resume(Long id, String token) {
+        ImportRequest importRequest = importRequestRepository.findById(id)
+            .orElseThrow(() -> new BusinessException("Импорт не найден"));
+        User user = userRepository.findByUsername(jwtTokenUtil.getUsername(token)).get();
+        if (!(importRequest.getUser().getId().equals(user.getId()) || user.getRoles().contains(roleService.getAdminRole()))) {
+            throw new BusinessException("Импорт не найден");
+        }
+        if (importRequest.getStatus() != StatusType.PARTIAL) {
+            throw new BusinessException("Продолжить можно только прерванный импорт");
+        }
+        importRequest.setStatus(StatusType.QUEUED);
+        importRequest.setOwnerInstance(instance);
+        importRequestRepository.own(id, instance);
+        return importRequest;
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdown();
+    }
+
+    /**
+     * Отмечает импорты этого экземпляра в очереди и в работе. Ошибка не останавливает
+     * следующие отметки.
+     */
+    public void heartbeat() {
+        try {
+            importRequestRepository.heartbeat(instance, ACTIVE);
+        } catch (RuntimeException e) {
+            logger.warn("Не удалось отметить импорты экземпляра", e);
+        }
+    }
+
+    /**
+     * Импорты из очереди и выполнявшиеся, владелец которых перестал их отмечать (остановлен
+     * или недоступен), переводятся в PARTIAL, и их можно продолжить. Импорты живых экземпляров
+     * не затрагиваются.
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${vehicles.import.heartbeat-interval-ms:10000}")
+    public void recoverInterrupted() {
+        importRequestRepository.replaceStale(ACTIVE, StatusType.PARTIAL.name(), staleAfterMs);
+    }
+
+    private boolean isOwned(ImportRequest importRequest) {
+        return instance.equals(importRequest.getOwnerInstance());
+    }
+
+    /**
+     * Открывает сохранённый файл импорта.
+     * @param name Имя файла в MinIO
+     * @return Поток файла, закрывает вызывающий
+     */
+    public InputStream openFile(String name) throws MinioException {
+        try {
+            return minioClient.getObject(GetObjectArgs.builder().bucket(bucket).object(name).build());
+        } catch (ErrorResponseException | InsufficientDataException | InternalException | InvalidResponseException | ServerException | XmlParserException | IOException | IllegalArgumentException | InvalidKeyException | NoSuchAlgorithmException e) {
+            throw new MinioException();
+        }
+    }
+
     public ResponseEntity<?> getStatuses(String token) {
         List<ImportRequest> lis;
         if (jwtTokenUtil.getRoles(token).isEmpty()) {
@@ -85,6 +309,10 @@ public class ImportRequestService {
                     status.setUsername(request.getUser().getUsername());
                     status.setCount(request.getCount());
                     status.setUid(request.getUid());
+                    status.setRowsProcessed(request.getRowsProcessed());
+                    status.setBytesRead(request.getBytesRead());
+                    status.setBytesTotal(request.getBytesTotal());
+                    status.setMessage(request.getMessage());
                     return status;
                 })
                 .collect(Collectors.toList()));
@@ -0,0 +1,189 @@
+package com.alwx.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Очередь импортов с ограниченной ёмкостью и фиксированным числом исполнителей.
+ * Импорты делятся на маленькие (до vehicles.import.small-file-bytes) и большие; внутри каждого класса
+ * пользователи обслуживаются по кругу, поэтому серия файлов одного пользователя не задерживает остальных.
+ * Маленькие файлы берутся первыми, но после vehicles.import.small-burst маленьких подряд
+ * очередь отдаёт большой, чтобы большие не ждали бесконечно.
+ */
+@Component
+public class ImportScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ImportScheduler.class);
+
+    /**
+     * Метрика количества импортов в очереди.
+     */
+    public static final String DEPTH_METRIC = "imports.queue.depth";
+
+    /**
+     * Метрика количества выполняемых импортов.
+     */
+    public static final String RUNNING_METRIC = "imports.running";
+
+    /**
+     * Метрика ожидания импорта в очереди, тег size=small|large.
+     */
+    public static final String WAIT_METRIC = "imports.queue.wait";
+
+    private final FairQueue small = new FairQueue();
+    private final FairQueue large = new FairQueue();
+    private final ExecutorService executor;
+    private final Timer smallWait;
+    private final Timer largeWait;
+    private final int workers;
+    private final int capacity;
+    private final long smallFileBytes;
+    private final int smallBurst;
+    private int running;
+    private int smallStreak;
+
+    public ImportScheduler(
+            MeterRegistry meterRegistry,
+            @Value("${vehicles.import.workers:2}") int workers,
+            @Value("${vehicles.import.queue-capacity:100}") int capacity,
+            @Value("${vehicles.import.small-file-bytes:1048576}") long smallFileBytes,
+            @Value("${vehicles.import.small-burst:4}") int smallBurst) {
+        this.executor = Executors.newFixedThreadPool(workers);
+        this.smallWait = meterRegistry.timer(WAIT_METRIC, "size", "small");
+        this.largeWait = meterRegistry.timer(WAIT_METRIC, "size", "large");
+        this.workers = workers;
+        this.capacity = capacity;
+        this.smallFileBytes = smallFileBytes;
+        this.smallBurst = smallBurst;
+        meterRegistry.gauge(DEPTH_METRIC, this, ImportScheduler::depth);
+        meterRegistry.gauge(RUNNING_METRIC, this, ImportScheduler::running);
+    }
+
+    /**
+     * @return true, если новый импорт не поместится в очередь
+     */
+    public synchronized boolean isFull() {
+        return small.size + large.size >= capacity;
+    }
+
+    /**
+     * Ставит импорт в очередь.
+     * @param username Владелец импорта
+     * @param size Размер файла в байтах
+     * @param action Импорт
+     * @return false, если очередь заполнена и импорт не принят
+     */
+    public synchronized boolean submit(String username, long size, Runnable action) {
+        if (isFull()) {
+            return false;
+        }
+        boolean isSmall = size <= smallFileBytes;
+        (isSmall ? small : large).add(username, new Job(action, isSmall, System.nanoTime()));
+        dispatch();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized double depth() {
+        return small.size + large.size;
+    }
+
+    private synchronized double running() {
+        return running;
+    }
+
+    private synchronized void dispatch() {
+        Job job;
+        while (running < workers && (job = next()) != null) {
+            running++;
+            (job.small ? smallWait : largeWait).record(System.nanoTime() - job.queuedAt, TimeUnit.NANOSECONDS);
+            Job started = job;
+            executor.execute(() -> {
+                try {
+                    started.action.run();
+                } catch (RuntimeException e) {
+                    logger.error("Импорт завершился необработанной ошибкой", e);
+                } finally {
+                    finished();
+                }
+            });
+        }
+    }
+
+    private synchronized void finished() {
+        running--;
+        dispatch();
+    }
+
+    private Job next() {
+        if (small.size > 0 && (large.size == 0 || smallStreak < smallBurst)) {
+            smallStreak++;
+            return small.poll();
+        }
+        smallStreak = 0;
+        return large.poll();
+    }
+
+    private static class Job {
+        private final Runnable action;
+        private final boolean small;
+        private final long queuedAt;
+
+        Job(Runnable action, boolean small, long queuedAt) {
+            this.action = action;
+            this.small = small;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * Очереди пользователей, обслуживаемые по кругу. Доступ только под блокировкой планировщика.
+     */
+    private static class FairQueue {
+        private final Map<String, Deque<Job>> jobs = new HashMap<>();
+        private final Deque<String> turn = new ArrayDeque<>();
+        private int size;
+
+        void add(String username, Job job) {
+            Deque<Job> queue = jobs.computeIfAbsent(username, key -> new ArrayDeque<>());
+            if (queue.isEmpty()) {
+                turn.add(username);
+            }
+            queue.add(job);
+            size++;
+        }
+
+        Job poll() {
+            String username = turn.poll();
+            if (username == null) {
+                return null;
+            }
+            Deque<Job> queue = jobs.get(username);
+            Job job = queue.poll();
+            if (queue.isEmpty()) {
+                jobs.remove(username);
+            } else {
+                turn.add(username);
+            }
+            size--;
+            return job;
+        }
+    }
+}
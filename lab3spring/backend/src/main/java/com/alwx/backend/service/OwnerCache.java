@@ -0,0 +1,67 @@
+package com.alwx.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.alwx.backend.models.User;
+import com.alwx.backend.repositories.UserRepository;
+
+/**
+ * Кеш владельцев тс по имени на время одной операции (запроса или импорта файла).
+ * Неизвестные имена находятся одним запросом по множеству, для каждого имени
+ * возвращается один и тот же объект пользователя, отсутствующие имена тоже запоминаются.
+ * Объекты принадлежат контексту персистентности транзакции, поэтому кеш не переживает её.
+ */
+public class OwnerCache {
+    private final UserRepository userRepository;
+    private final Map<String, Optional<User>> users = new HashMap<>();
+
+    public OwnerCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Загружает в кеш пользователей с ещё не известными именами одним запросом.
+     * @param usernames Имена пользователей
+     */
+    public void load(Collection<String> usernames) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String username : usernames) {
+            if (username != null && !users.containsKey(username)) {
+                missing.add(username);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (User user : userRepository.findAllByUsernameIn(missing)) {
+            users.put(user.getUsername(), Optional.of(user));
+        }
+        for (String username : missing) {
+            users.putIfAbsent(username, Optional.empty());
+        }
+    }
+
+    /**
+     * Находит существующих пользователей по именам, неизвестные имена пропускаются.
+     * @param usernames Имена владельцев
+     * @return Пользователи без повторов в порядке имён
+     */
+    public List<User> resolve(Collection<String> usernames) {
+        load(usernames);
+        Map<String, User> owners = new LinkedHashMap<>();
+        for (String username : usernames) {
+            if (username != null) {
+                users.get(username).ifPresent(user -> owners.putIfAbsent(username, user));
+            }
+        }
+        return new ArrayList<>(owners.values());
+    }
+}
@@ -0,0 +1,324 @@
+package com.alwx.backend.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import com.alwx.backend.dtos.AppError;
+import com.alwx.backend.dtos.RequestVehicle;
+import com.alwx.backend.models.User;
+import com.alwx.backend.models.UserAction;
+import com.alwx.backend.models.Vehicle;
+import com.alwx.backend.models.enums.Action;
+import com.alwx.backend.models.enums.FuelType;
+import com.alwx.backend.models.enums.VehicleType;
+import com.alwx.backend.repositories.UserRepository;
+import com.alwx.backend.repositories.VehicleRepository;
+import com.alwx.backend.utils.SequenceIds;
+import com.alwx.backend.utils.jwt.JwtTokenUtil;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сервис пакетных операций с тс: все тс проверяются заранее, владельцы и координаты
+ * находятся запросами по множеству, строки вставляются и удаляются пакетами JDBC в одной транзакции.
+ */
+@Service
+@RequiredArgsConstructor
+public class VehicleBatchService {
+    private final VehicleRepository vehicleRepository;
+    private final CoordinatesService coordinatesService;
+    private final UserRepository userRepository;
+    private final VehicleService vehicleService;
+    private final VehicleChangeTracker vehicleChangeTracker;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIds sequenceIds;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final Validator validator;
+
+    /**
+     * Максимальное количество тс в одном запросе.
+     */
+    @Value("${vehicles.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * Количество тс, удаляемых одной порцией запросов при удалении по фильтру.
+     */
+    @Value("${vehicles.batch.delete-chunk:500}")
+    private int deleteChunk;
+
+    /**
+     * Создает пакет тс. Если хотя бы одно тс некорректно, не создаётся ни одно.
+     * @param newVehicles Тс для создания
+     * @param token Токен аутентификации
+     * @return ResponseEntity с id созданных тс в порядке запроса или списком ошибок
+     */
+    @Transactional
+    public ResponseEntity<?> createVehicles(List<RequestVehicle> newVehicles, String token) {
+        if (newVehicles == null || newVehicles.isEmpty()) {
+            return badRequest("Список машин пуст");
+        }
+        if (newVehicles.size() > maxBatchSize) {
+            return badRequest("В одном запросе можно создать не более " + maxBatchSize + " машин");
+        }
+
+        Optional<User> userOpt = userRepository.findByUsername(jwtTokenUtil.getUsername(token));
+        if (!userOpt.isPresent()) {
+            return badRequest("Ваш токен не действителен");
+        }
+        User user = userOpt.get();
+
+        List<String> errors = validate(newVehicles);
+        if (!errors.isEmpty()) {
+            return badRequest(String.join("\n", errors));
+        }
+
+        OwnerCache ownerCache = vehicleService.newOwnerCache();
+        Set<String> ownerNames = new HashSet<>();
+        newVehicles.forEach(vehicle -> ownerNames.addAll(vehicle.getNamesOfOwners()));
+        ownerCache.load(ownerNames);
+
+        List<List<Long>> owners = new ArrayList<>();
+        for (int i = 0; i < newVehicles.size(); i++) {
+            Set<Long> ownerIds = new LinkedHashSet<>();
+            for (User owner : ownerCache.resolve(newVehicles.get(i).getNamesOfOwners())) {
+                ownerIds.add(owner.getId());
+            }
+            if (ownerIds.size() > 3) {
+                errors.add(itemError(i, newVehicles.get(i), "Превышено максимальное количество владельцев (3)"));
+            }
+            owners.add(new ArrayList<>(ownerIds));
+        }
+        if (!errors.isEmpty()) {
+            return badRequest(String.join("\n", errors));
+        }
+
+        Map<List<Object>, Long> coordinateIds = resolveCoordinates(newVehicles);
+        List<Long> ids = insertVehicles(newVehicles, owners, coordinateIds);
+        insertOwners(ids, owners);
+        insertActions(ids, user, Action.CREATE_VEHICLE);
+        ids.forEach(vehicleChangeTracker::recordUpsert);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Вы успешно добавили машины");
+        response.put("ids", ids);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Удаляет все тс, подходящие под фильтр, которые пользователь имеет право удалить:
+     * тс, которыми он владеет, а администратор - также тс с разрешением на редактирование.
+     * Права проверяются в самом запросе, тс без прав пропускаются. Тс удаляются порциями,
+     * координаты, на которые больше не ссылается ни одно тс, удаляются вместе с ними.
+     * @param fuelType Тип топлива или null
+     * @param type Тип тс или null
+     * @param owner Имя владельца или null
+     * @param token Токен аутентификации
+     * @return ResponseEntity с количеством удалённых тс или ошибкой
+     */
+    @Transactional
+    public ResponseEntity<?> deleteVehicles(String fuelType, String type, String owner, String token) {
+        if (!StringUtils.hasText(fuelType) && !StringUtils.hasText(type) && !StringUtils.hasText(owner)) {
+            return badRequest("Не задан фильтр для удаления");
+        }
+
+        Optional<User> userOpt = userRepository.findByUsername(jwtTokenUtil.getUsername(token));
+        if (!userOpt.isPresent()) {
+            return badRequest("Ваш токен не действителен");
+        }
+        User user = userOpt.get();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("userId", user.getId())
+            .addValue("chunk", deleteChunk);
+        StringBuilder sql = new StringBuilder("select v.id from vehicle v where ");
+        try {
+            if (StringUtils.hasText(fuelType)) {
+                sql.append("v.fuel_type = :fuelType and ");
+                params.addValue("fuelType", FuelType.fromString(fuelType).name());
+            }
+            if (StringUtils.hasText(type)) {
+                sql.append("v.type = :type and ");
+                params.addValue("type", VehicleType.fromString(type).name());
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        if (StringUtils.hasText(owner)) {
+            sql.append("exists (select 1 from vehicle_user vu join users u on u.id = vu.user_id "
+                + "where vu.vehicle_id = v.id and u.username = :owner) and ");
+            params.addValue("owner", owner);
+        }
+        sql.append("(exists (select 1 from vehicle_user vu where vu.vehicle_id = v.id and vu.user_id = :userId) "
+            + "or (v.permission_to_edit and exists (select 1 from users_roles ur join roles r on r.id = ur.role_id "
+            + "where ur.used_id = :userId and r.name = 'ROLE_ADMIN'))) "
+            + "order by v.id limit :chunk for update of v");
+
+        List<Long> deleted = new ArrayList<>();
+        List<Long> ids;
+        do {
+            ids = namedParameterJdbcTemplate.queryForList(sql.toString(), params, Long.class);
+            if (ids.isEmpty()) {
+                break;
+            }
+            MapSqlParameterSource idParams = new MapSqlParameterSource("ids", ids);
+            namedParameterJdbcTemplate.update("delete from vehicle_user where vehicle_id in (:ids)", idParams);
+            Set<Long> coordinateIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "delete from vehicle where id in (:ids) returning coordinates_id", idParams, Long.class));
+            coordinateIds.remove(null);
+            if (!coordinateIds.isEmpty()) {
+                coordinatesService.evict(namedParameterJdbcTemplate.queryForList(
+                    "delete from coordinates c where c.id in (:coordinateIds) "
+                        + "and not exists (select 1 from vehicle v where v.coordinates_id = c.id) returning c.id",
+                    new MapSqlParameterSource("coordinateIds", coordinateIds), Long.class));
+            }
+            deleted.addAll(ids);
+        } while (ids.size() == deleteChunk);
+
+        if (!deleted.isEmpty()) {
+            insertActions(deleted, user, Action.DELETE_VEHICLE);
+            deleted.forEach(vehicleChangeTracker::recordDelete);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", deleted.isEmpty() ? "Нет доступных машин для удаления" : "Удалено машин: " + deleted.size());
+        response.put("deleted", deleted.size());
+        return ResponseEntity.ok(response);
+    }
+
+    private List<String> validate(List<RequestVehicle> newVehicles) {
+        List<String> errors = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < newVehicles.size(); i++) {
+            RequestVehicle vehicle = newVehicles.get(i);
+            if (vehicle == null) {
+                errors.add("Машина #" + (i + 1) + ": пустой объект");
+                continue;
+            }
+            Set<ConstraintViolation<RequestVehicle>> violations = validator.validate(vehicle);
+            if (!violations.isEmpty()) {
+                for (ConstraintViolation<RequestVehicle> violation : violations) {
+                    errors.add(itemError(i, vehicle, violation.getMessage()));
+                }
+                continue;
+            }
+            String constraintsError = vehicleService.checkNewConstraints(vehicle);
+            if (constraintsError != null) {
+                errors.add(itemError(i, vehicle, constraintsError));
+            }
+            if (!names.add(vehicle.getName())) {
+                errors.add(itemError(i, vehicle, "Название повторяется в запросе"));
+            }
+        }
+        if (errors.isEmpty()) {
+            for (String name : vehicleRepository.findExistingNames(names)) {
+                errors.add("Машина \"" + name + "\": машина с таким именем уже существует");
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Находит id координат всех тс пакета, недостающие координаты вставляются одним запросом.
+     * @param newVehicles Тс пакета
+     * @return id координат по ключу (x, y), пустой в режиме embedded
+     */
+    private Map<List<Object>, Long> resolveCoordinates(List<RequestVehicle> newVehicles) {
+        if (!coordinatesService.isShared()) {
+            return Map.of();
+        }
+        Set<List<Object>> keys = new LinkedHashSet<>();
+        newVehicles.forEach(vehicle -> keys.add(CoordinatesService.key(vehicle.getX(), vehicle.getY())));
+        return coordinatesService.resolveIds(keys);
+    }
+
+    private List<Long> insertVehicles(List<RequestVehicle> newVehicles, List<List<Long>> owners, Map<List<Object>, Long> coordinateIds) {
+        Timestamp creationDate = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = sequenceIds.next(Vehicle.SEQUENCE, newVehicles.size());
+        jdbcTemplate.batchUpdate(
+            "insert into vehicle (id, version, name, coordinates_id, x, y, creation_date, type, engine_power, "
+                + "number_of_wheels, capacity, distance_travelled, fuel_consumption, fuel_type, permission_to_edit) "
+                + "values (?, 0, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    RequestVehicle vehicle = newVehicles.get(i);
+                    ps.setLong(1, ids.get(i));
+                    ps.setString(2, vehicle.getName());
+                    ps.setObject(3, coordinateIds.get(CoordinatesService.key(vehicle.getX(), vehicle.getY())), Types.BIGINT);
+                    ps.setLong(4, vehicle.getX());
+                    ps.setDouble(5, vehicle.getY());
+                    ps.setTimestamp(6, creationDate);
+                    ps.setString(7, VehicleType.fromString(vehicle.getType()).name());
+                    ps.setDouble(8, vehicle.getEnginePower());
+                    ps.setLong(9, vehicle.getNumberOfWheels());
+                    ps.setLong(10, vehicle.getCapacity());
+                    ps.setObject(11, vehicle.getDistanceTravelled());
+                    ps.setObject(12, vehicle.getFuelConsumption());
+                    ps.setString(13, FuelType.fromString(vehicle.getFuelType()).name());
+                    ps.setBoolean(14, owners.get(i).isEmpty() || Boolean.TRUE.equals(vehicle.getPermissionToEdit()));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return newVehicles.size();
+                }
+            });
+        return ids;
+    }
+
+    private void insertOwners(List<Long> ids, List<List<Long>> owners) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            for (Long ownerId : owners.get(i)) {
+                rows.add(new Object[] {ids.get(i), ownerId});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into vehicle_user (vehicle_id, user_id) values (?, ?)", rows);
+        }
+    }
+
+    private void insertActions(List<Long> ids, User user, Action action) {
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> actionIds = sequenceIds.next(UserAction.SEQUENCE, ids.size());
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rows.add(new Object[] {actionIds.get(i), action.name(), ids.get(i), timestamp, user.getId()});
+        }
+        jdbcTemplate.batchUpdate("insert into user_actions (id, action, vehicle_id, timestamp, user_id) values (?, ?, ?, ?, ?)", rows);
+    }
+
+    private String itemError(int index, RequestVehicle vehicle, String message) {
+        return "Машина #" + (index + 1) + " \"" + vehicle.getName() + "\": " + message;
+    }
+
+    private ResponseEntity<?> badRequest(String message) {
+        return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), message), HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,179 @@
+package com.alwx.backend.service;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.alwx.backend.dtos.SimpleInfoAboutCars;
+import com.alwx.backend.dtos.VehicleChangeFeed;
+import com.alwx.backend.dtos.VehicleChanges;
+import com.alwx.backend.dtos.VehicleRow;
+import com.alwx.backend.models.VehicleChange;
+import com.alwx.backend.models.enums.ChangeOperation;
+import com.alwx.backend.repositories.VehicleChangeRepository;
+import com.alwx.backend.repositories.VehicleRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сервис журнала изменений таблицы тс: запись изменений в транзакции мутации,
+ * выдача изменений с заданной версии и периодическое сжатие журнала.
+ */
+@Service
+@RequiredArgsConstructor
+public class VehicleChangeLogService {
+    /**
+     * Ключ advisory-блокировки, под которой пишется журнал. Блокировка держится
+     * до коммита, поэтому id записей выдаются в порядке коммитов транзакций.
+     */
+    private static final long LOG_LOCK_KEY = 0x76656863L;
+
+    /**
+     * Вставляет записи журнала одним запросом в порядке входных массивов и возвращает
+     * первый и последний выданный id. Под блокировкой журнала id записей идут подряд.
+     */
+    private static final String APPEND_SQL = """
+        with inserted as (
+            insert into vehicle_change (vehicle_id, operation, timestamp)
+            select vehicle_id, operation, ? from unnest(?::bigint[], ?::varchar[]) with ordinality as t(vehicle_id, operation, n)
+            order by n
+            returning id
+        )
+        select min(id), max(id) from inserted
+        """;
+
+    private final VehicleChangeRepository vehicleChangeRepository;
+    private final VehicleRepository vehicleRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Максимум записей журнала в одном ответе, при превышении клиенту нужно перечитать таблицу.
+     */
+    @Value("${vehicles.changes.max-feed-size:10000}")
+    private int maxFeedSize;
+
+    /**
+     * Сколько последних записей журнала сохраняется при сжатии.
+     */
+    @Value("${vehicles.changes.retain:100000}")
+    private long retain;
+
+    /**
+     * Записывает изменения в журнал одним запросом, чтобы блокировка журнала держалась
+     * один запрос, а не по запросу на запись. Вызывается перед коммитом транзакции, в которой они сделаны.
+     * @param changes Изменения транзакции, в них проставляется новая версия таблицы
+     */
+    public void append(VehicleChanges changes) {
+        List<Long> vehicleIds = new ArrayList<>();
+        List<String> operations = new ArrayList<>();
+        for (Long id : changes.getUpserted()) {
+            vehicleIds.add(id);
+            operations.add(ChangeOperation.UPSERT.name());
+        }
+        for (Long id : changes.getDeleted()) {
+            vehicleIds.add(id);
+            operations.add(ChangeOperation.DELETE.name());
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.execute("select pg_advisory_xact_lock(" + LOG_LOCK_KEY + ")");
+        jdbcTemplate.query(
+            con -> {
+                PreparedStatement ps = con.prepareStatement(APPEND_SQL);
+                ps.setTimestamp(1, now);
+                ps.setArray(2, con.createArrayOf("bigint", vehicleIds.toArray()));
+                ps.setArray(3, con.createArrayOf("varchar", operations.toArray()));
+                return ps;
+            },
+            (RowCallbackHandler) rs -> {
+                changes.setPreviousVersion(rs.getLong(1) - 1);
+                changes.setVersion(rs.getLong(2));
+            });
+    }
+
+    /**
+     * Текущая версия таблицы.
+     * @return id последней записи журнала, 0 если журнал пуст
+     */
+    @Transactional(readOnly = true)
+    public long getCurrentVersion() {
+        return vehicleChangeRepository.findFirstByOrderByIdDesc().map(VehicleChange::getId).orElse(0L);
+    }
+
+    /**
+     * Получает изменения таблицы после заданной версии: актуальные строки изменённых тс и id удалённых.
+     * @param since Версия, которая уже есть у клиента
+     * @return ResponseEntity с изменениями или флагом полной перезагрузки
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getChangesSince(long since) {
+        long current = getCurrentVersion();
+        Optional<VehicleChange> oldest = vehicleChangeRepository.findFirstByOrderByIdAsc();
+        if (since > current || (oldest.isPresent() && since < oldest.get().getId() - 1)) {
+            return ResponseEntity.ok(fullReload(current));
+        }
+
+        List<VehicleChange> entries = vehicleChangeRepository.findByIdGreaterThanOrderByIdAsc(since, PageRequest.of(0, maxFeedSize + 1));
+        if (entries.size() > maxFeedSize) {
+            return ResponseEntity.ok(fullReload(current));
+        }
+
+        Map<Long, ChangeOperation> lastOperation = new LinkedHashMap<>();
+        long version = since;
+        for (VehicleChange entry : entries) {
+            lastOperation.remove(entry.getVehicleId());
+            lastOperation.put(entry.getVehicleId(), entry.getOperation());
+            version = entry.getId();
+        }
+
+        List<Long> upsertedIds = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        lastOperation.forEach((id, operation) -> {
+            if (operation == ChangeOperation.UPSERT) {
+                upsertedIds.add(id);
+            } else {
+                deleted.add(id);
+            }
+        });
+
+        List<SimpleInfoAboutCars> upserted = new ArrayList<>();
+        if (!upsertedIds.isEmpty()) {
+            for (VehicleRow row : vehicleRepository.findRowsByIds(upsertedIds)) {
+                upserted.add(new SimpleInfoAboutCars(row));
+            }
+        }
+
+        return ResponseEntity.ok(new VehicleChangeFeed(version, false, upserted, deleted));
+    }
+
+    /**
+     * Сжимает журнал, оставляя последние записи. Самая старая оставшаяся запись
+     * служит границей: клиентам с версией раньше неё нужна полная перезагрузка.
+     */
+    @Scheduled(fixedDelayString = "${vehicles.changes.compact-interval-ms:600000}")
+    @Transactional
+    public void compact() {
+        long current = getCurrentVersion();
+        if (current - retain > 0) {
+            vehicleChangeRepository.deleteOlderThan(current - retain);
+        }
+    }
+
+    private VehicleChangeFeed fullReload(long version) {
+        return new VehicleChangeFeed(version, true, new ArrayList<>(), new ArrayList<>());
+    }
+}
@@ -0,0 +1,78 @@
+package com.alwx.backend.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.alwx.backend.dtos.VehicleChanges;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Собирает изменения таблицы тс в рамках текущей транзакции, перед коммитом пишет их
+ * в журнал изменений и публикует одним событием {@link VehicleChanges} после коммита.
+ * При откате изменения отбрасываются.
+ */
+@Component
+@RequiredArgsConstructor
+public class VehicleChangeTracker {
+    private final ApplicationEventPublisher eventPublisher;
+    private final VehicleChangeLogService vehicleChangeLogService;
+
+    /**
+     * Отмечает, что тс было создано или изменено.
+     * @param id ID автомобиля
+     */
+    public void recordUpsert(Long id) {
+        VehicleChanges changes = currentChanges();
+        changes.getUpserted().add(id);
+        publishIfNoTransaction(changes);
+    }
+
+    /**
+     * Отмечает, что тс было удалено.
+     * @param id ID автомобиля
+     */
+    public void recordDelete(Long id) {
+        VehicleChanges changes = currentChanges();
+        changes.getUpserted().remove(id);
+        changes.getDeleted().add(id);
+        publishIfNoTransaction(changes);
+    }
+
+    private VehicleChanges currentChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new VehicleChanges();
+        }
+        VehicleChanges changes = (VehicleChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            VehicleChanges created = new VehicleChanges();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (!created.isEmpty()) {
+                        vehicleChangeLogService.append(created);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(VehicleChangeTracker.this);
+                    if (status == STATUS_COMMITTED && !created.isEmpty()) {
+                        eventPublisher.publishEvent(created);
+                    }
+                }
+            });
+            changes = created;
+        }
+        return changes;
+    }
+
+    private void publishIfNoTransaction(VehicleChanges changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(changes);
+        }
+    }
+}
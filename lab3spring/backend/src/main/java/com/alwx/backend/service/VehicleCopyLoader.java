@@ -0,0 +1,195 @@
+package com.alwx.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import com.alwx.backend.controllers.exceptionHandlers.exceptions.ImportValidationException;
+import com.alwx.backend.dtos.ImportRow;
+import com.alwx.backend.dtos.RequestVehicle;
+import com.alwx.backend.models.Vehicle;
+import com.alwx.backend.models.enums.FuelType;
+import com.alwx.backend.models.enums.VehicleType;
+import com.alwx.backend.utils.SequenceIds;
+import com.alwx.backend.utils.UserError;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Запись части файла импорта через COPY (vehicles.import.engine=copy). Строки копируются
+ * во временную таблицу сессии vehicle_import_stage, проверяются по ней запросами на всё множество
+ * и переносятся в vehicle и vehicle_user одним запросом на таблицу. Координаты в режиме shared
+ * находятся или создаются одним запросом {@link CoordinatesService#resolveIds}, id тс выдаются
+ * блоками последовательности. Вызывается в транзакции импорта; у каждого соединения своя таблица
+ * stage, поэтому параллельные импорты не читают чужие строки, а очистка не оставляет мёртвых строк
+ * в общей таблице. Таблица очищается после каждой части и при коммите.
+ */
+@Service
+@RequiredArgsConstructor
+public class VehicleCopyLoader {
+    private static final String CREATE_STAGE_SQL = """
+        create temp table if not exists vehicle_import_stage (
+            num bigint not null,
+            id bigint not null,
+            name varchar(255) not null,
+            coordinates_id bigint,
+            x bigint not null,
+            y float8 not null,
+            type varchar(255) not null,
+            engine_power float8,
+            number_of_wheels bigint not null,
+            capacity bigint,
+            distance_travelled float8,
+            fuel_consumption real,
+            fuel_type varchar(255) not null,
+            owners text not null,
+            permission_to_edit boolean not null
+        ) on commit delete rows
+        """;
+
+    private static final String COPY_SQL = """
+        copy vehicle_import_stage (num, id, name, coordinates_id, x, y, type, engine_power, number_of_wheels,
+            capacity, distance_travelled, fuel_consumption, fuel_type, owners, permission_to_edit)
+        from stdin with (format csv)
+        """;
+
+    private static final String OWNERS_OF_STAGE_ROW = """
+        select u.id from unnest(string_to_array(s.owners, ' ')) o(name) join users u on u.username = o.name
+        """;
+
+    private static final String TAKEN_NAME_SQL = """
+        select s.num, s.name from vehicle_import_stage s
+        where exists (select 1 from vehicle v where v.name = s.name)
+        order by s.num limit 1
+        """;
+
+    private static final String TOO_MANY_OWNERS_SQL = """
+        select s.num from vehicle_import_stage s
+        where (select count(distinct owner.id) from (%s) owner) > 3
+        order by s.num limit 1
+        """.formatted(OWNERS_OF_STAGE_ROW);
+
+    private static final String MERGE_VEHICLES_SQL = """
+        insert into vehicle (id, version, name, coordinates_id, x, y, creation_date, type, engine_power,
+            number_of_wheels, capacity, distance_travelled, fuel_consumption, fuel_type, permission_to_edit)
+        select s.id, 0, s.name, s.coordinates_id, s.x, s.y, localtimestamp, s.type, s.engine_power,
+            s.number_of_wheels, s.capacity, s.distance_travelled, s.fuel_consumption, s.fuel_type,
+            s.permission_to_edit or not exists (%s)
+        from vehicle_import_stage s
+        order by s.num
+        """.formatted(OWNERS_OF_STAGE_ROW);
+
+    private static final String MERGE_OWNERS_SQL = """
+        insert into vehicle_user (vehicle_id, user_id)
+        select distinct s.id, u.id from vehicle_import_stage s
+        cross join unnest(string_to_array(s.owners, ' ')) o(name)
+        join users u on u.username = o.name
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIds sequenceIds;
+    private final CoordinatesService coordinatesService;
+    private final VehicleChangeTracker vehicleChangeTracker;
+
+    /**
+     * Сохраняет часть файла. Названия внутри файла уже проверены, здесь проверяются
+     * занятые названия в таблице и число владельцев; ошибка указывает первую неверную запись.
+     * Название, занятое параллельной транзакцией, обнаруживается только при вставке
+     * нарушением {@link Vehicle#NAME_CONSTRAINT}.
+     * @param chunk Проверенные строки файла
+     * @return Id созданных тс
+     */
+    public List<Long> load(List<ImportRow> chunk) {
+        Map<List<Object>, Long> coordinateIds = resolveCoordinates(chunk);
+        List<Long> ids = sequenceIds.next(Vehicle.SEQUENCE, chunk.size());
+        jdbcTemplate.execute(CREATE_STAGE_SQL);
+        copy(chunk, ids, coordinateIds);
+
+        jdbcTemplate.query(TAKEN_NAME_SQL, (RowCallbackHandler) rs -> {
+            throw new ImportValidationException("Запись " + rs.getLong(1) + ": "
+                + UserError.VEHICLE_NAME_EXISTS.getMessage() + " Название: " + rs.getString(2));
+        });
+        jdbcTemplate.query(TOO_MANY_OWNERS_SQL, (RowCallbackHandler) rs -> {
+            throw new ImportValidationException("Запись " + rs.getLong(1) + ": Превышено максимальное количество владельцев (3)");
+        });
+
+        jdbcTemplate.update(MERGE_VEHICLES_SQL);
+        jdbcTemplate.update(MERGE_OWNERS_SQL);
+        jdbcTemplate.execute("truncate vehicle_import_stage");
+
+        ids.forEach(vehicleChangeTracker::recordUpsert);
+        return ids;
+    }
+
+    private Map<List<Object>, Long> resolveCoordinates(List<ImportRow> chunk) {
+        if (!coordinatesService.isShared()) {
+            return Map.of();
+        }
+        Set<List<Object>> keys = new LinkedHashSet<>();
+        chunk.forEach(row -> keys.add(CoordinatesService.key(row.getVehicle().getX(), row.getVehicle().getY())));
+        return coordinatesService.resolveIds(keys);
+    }
+
+    private void copy(List<ImportRow> chunk, List<Long> ids, Map<List<Object>, Long> coordinateIds) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                for (int i = 0; i < chunk.size(); i++) {
+                    byte[] line = line(chunk.get(i), ids.get(i), coordinateIds).getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(line, 0, line.length);
+                }
+                return copyIn.endCopy();
+            } catch (SQLException | RuntimeException e) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw e;
+            }
+        });
+    }
+
+    private String line(ImportRow row, Long id, Map<List<Object>, Long> coordinateIds) {
+        RequestVehicle vehicle = row.getVehicle();
+        StringBuilder line = new StringBuilder();
+        append(line, row.getNumber());
+        append(line, id);
+        append(line, vehicle.getName());
+        append(line, coordinateIds.get(CoordinatesService.key(vehicle.getX(), vehicle.getY())));
+        append(line, vehicle.getX());
+        append(line, vehicle.getY());
+        append(line, VehicleType.fromString(vehicle.getType()).name());
+        append(line, vehicle.getEnginePower());
+        append(line, vehicle.getNumberOfWheels());
+        append(line, vehicle.getCapacity());
+        append(line, vehicle.getDistanceTravelled());
+        append(line, vehicle.getFuelConsumption());
+        append(line, FuelType.fromString(vehicle.getFuelType()).name());
+        append(line, String.join(" ", vehicle.getNamesOfOwners()));
+        append(line, Boolean.TRUE.equals(vehicle.getPermissionToEdit()));
+        return line.append('\n').toString();
+    }
+
+    /**
+     * Добавляет значение в строку csv для COPY: строки в кавычках, null - пустое поле без кавычек.
+     */
+    private static void append(StringBuilder line, Object value) {
+        if (line.length() > 0) {
+            line.append(',');
+        }
+        if (value instanceof String text) {
+            line.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else if (value != null) {
+            line.append(value);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.alwx.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.alwx.backend.controllers.exceptionHandlers.exceptions.ImportValidationException;
+import com.alwx.backend.dtos.ImportRow;
+import com.alwx.backend.dtos.RequestVehicle;
+import com.alwx.backend.models.enums.FuelType;
+import com.alwx.backend.models.enums.VehicleType;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Разбор и проверка csv импорта без обращений к бд. Поток файла режется на блоки байт
+ * по границам записей (перевод строки вне кавычек), блоки разбираются и проверяются параллельно
+ * на ограниченном пуле, а писатель забирает проверенные строки частями строго в порядке файла.
+ * Вперёд разбирается не больше двух блоков на поток пула, так что память не зависит от размера файла.
+ */
+@Component
+public class VehicleCsvReader {
+    private static final Logger logger = LoggerFactory.getLogger(VehicleCsvReader.class);
+
+    private static final List<String> REQUIRED_HEADERS = Arrays.asList(
+        "название", "x", "y", "тип", "мощность", "колеса", 
+        "вместимость", "путь", "расход", "топливо", "создатели", "редактирование"
+    );
+
+    private static final CSVFormat HEADER_FORMAT = CSVFormat.DEFAULT.builder()
+        .setHeader()
+        .setSkipHeaderRecord(true)
+        .setIgnoreHeaderCase(true)
+        .setTrim(true)
+        .build();
+
+    /**
+     * Во сколько раз блок может превысить vehicles.import.parse-block-bytes в поисках конца записи,
+     * дальше файл считается битым (например, незакрытая кавычка).
+     */
+    private static final int MAX_BLOCK_FACTOR = 16;
+
+    private static final String STRUCTURE_ERROR = "Ошибка в структуре csv";
+
+    private final Validator validator;
+    private final VehicleService vehicleService;
+    private final ExecutorService executor;
+    private final int blockBytes;
+    private final int window;
+
+    public VehicleCsvReader(
+            Validator validator,
+            VehicleService vehicleService,
+            @Value("${vehicles.import.parse-threads:0}") int parseThreads,
+            @Value("${vehicles.import.parse-block-bytes:1048576}") int blockBytes) {
+        int threads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        this.validator = validator;
+        this.vehicleService = vehicleService;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.blockBytes = blockBytes;
+        this.window = threads * 2;
+    }
+
+    /**
+     * Открывает файл для чтения частями. Заголовок читается и проверяется сразу.
+     * @param in Поток файла, закрывается вместе с результатом
+     * @param skip Сколько первых записей пропустить (контрольная точка продолжаемого импорта)
+     * @param chunkSize Записей в одной части
+     * @return Части файла
+     */
+    public Chunks open(InputStream in, long skip, int chunkSize) {
+        return new Chunks(in, skip, chunkSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Проверенные строки файла частями по порядку.
+     */
+    public class Chunks implements Closeable {
+        private final InputStream in;
+        private final BlockSplitter splitter;
+        private final long skip;
+        private final int chunkSize;
+        private final Deque<Future<ParsedBlock>> pending = new ArrayDeque<>();
+        private CSVFormat format;
+        private boolean exhausted;
+        private ParsedBlock block;
+        private int position;
+        private long number;
+
+        private Chunks(InputStream in, long skip, int chunkSize) {
+            this.in = in;
+            this.splitter = new BlockSplitter(in, blockBytes);
+            this.skip = skip;
+            this.chunkSize = chunkSize;
+            try {
+                byte[] first = splitter.next();
+                if (first == null) {
+                    exhausted = true;
+                    return;
+                }
+                try (CSVParser parser = new CSVParser(reader(first), HEADER_FORMAT)) {
+                    validateHeaders(parser.getHeaderMap().keySet());
+                    format = HEADER_FORMAT.builder()
+                        .setHeader(parser.getHeaderNames().toArray(new String[0]))
+                        .setSkipHeaderRecord(false)
+                        .build();
+                }
+                pending.add(executor.submit(() -> parse(first, HEADER_FORMAT)));
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw new ImportValidationException(STRUCTURE_ERROR);
+            }
+        }
+
+        /**
+         * @return Следующая часть или null в конце файла
+         */
+        public List<ImportRow> next() {
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            try {
+                while (chunk.size() < chunkSize) {
+                    if (block == null || position == block.vehicles.size()) {
+                        if (block != null && block.error != null) {
+                            throw error(number + 1, block.error);
+                        }
+                        submitAhead();
+                        Future<ParsedBlock> future = pending.poll();
+                        if (future == null) {
+                            break;
+                        }
+                        block = future.get();
+                        position = 0;
+                        continue;
+                    }
+                    RequestVehicle vehicle = block.vehicles.get(position++);
+                    number++;
+                    if (number > skip) {
+                        chunk.add(new ImportRow(number, vehicle));
+                    }
+                }
+            } catch (ExecutionException e) {
+                throw error(number + 1, STRUCTURE_ERROR);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ImportValidationException("Импорт прерван");
+            }
+            return chunk.isEmpty() ? null : chunk;
+        }
+
+        /**
+         * Отправляет на разбор следующие блоки. Если файл дальше не режется на записи, в очередь
+         * ставится блок с ошибкой: она выйдет после строк предыдущих блоков и с номером своей записи.
+         */
+        private void submitAhead() {
+            while (!exhausted && pending.size() < window) {
+                byte[] bytes;
+                try {
+                    bytes = splitter.next();
+                } catch (IOException e) {
+                    exhausted = true;
+                    pending.add(CompletableFuture.completedFuture(new ParsedBlock(List.of(), STRUCTURE_ERROR)));
+                    break;
+                }
+                if (bytes == null) {
+                    exhausted = true;
+                } else {
+                    pending.add(executor.submit(() -> parse(bytes, format)));
+                }
+            }
+        }
+
+        /**
+         * Отменяет разбор блоков, которые уже не понадобятся, и закрывает поток файла.
+         */
+        @Override
+        public void close() {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            try {
+                in.close();
+            } catch (IOException e) {
+                logger.warn("Не удалось закрыть файл импорта", e);
+            }
+        }
+    }
+
+    private ImportValidationException error(long number, String message) {
+        if (STRUCTURE_ERROR.equals(message)) {
+            return new ImportValidationException(STRUCTURE_ERROR + ", запись " + number);
+        }
+        return new ImportValidationException("Запись " + number + ": " + message);
+    }
+
+    /**
+     * Разбирает и проверяет блок до первой ошибки. Выполняется в пуле.
+     */
+    private ParsedBlock parse(byte[] block, CSVFormat format) {
+        List<RequestVehicle> vehicles = new ArrayList<>();
+        try (CSVParser parser = new CSVParser(reader(block), format)) {
+            for (CSVRecord record : parser) {
+                vehicles.add(processRecord(record));
+            }
+            return new ParsedBlock(vehicles, null);
+        } catch (ImportValidationException e) {
+            return new ParsedBlock(vehicles, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            return new ParsedBlock(vehicles, STRUCTURE_ERROR);
+        }
+    }
+
+    private static InputStreamReader reader(byte[] block) {
+        return new InputStreamReader(new ByteArrayInputStream(block), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Проверенные тс блока; error - ошибка в записи, следующей за последней из vehicles.
+     */
+    private static class ParsedBlock {
+        private final List<RequestVehicle> vehicles;
+        private final String error;
+
+        ParsedBlock(List<RequestVehicle> vehicles, String error) {
+            this.vehicles = vehicles;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Режет поток на блоки не меньше blockBytes, каждый заканчивается переводом строки вне кавычек.
+     * Перевод строки и кавычка - однобайтовые символы, поэтому разрез не попадает внутрь символа utf-8.
+     */
+    static class BlockSplitter {
+        private final InputStream in;
+        private final int blockBytes;
+        private byte[] buffer;
+        private int length;
+        private boolean eof;
+
+        BlockSplitter(InputStream in, int blockBytes) {
+            this.in = in;
+            this.blockBytes = blockBytes;
+            this.buffer = new byte[blockBytes];
+        }
+
+        /**
+         * @return Следующий блок или null в конце потока
+         */
+        byte[] next() throws IOException {
+            int limit = blockBytes;
+            while (true) {
+                while (!eof && length < limit) {
+                    fill();
+                }
+                if (eof) {
+                    return length == 0 ? null : take(length);
+                }
+                int boundary = lastBoundary();
+                if (boundary >= 0) {
+                    return take(boundary + 1);
+                }
+                if (limit >= MAX_BLOCK_FACTOR * blockBytes) {
+                    throw new IOException("Не найден конец записи");
+                }
+                limit += blockBytes;
+            }
+        }
+
+        private void fill() throws IOException {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length + blockBytes);
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                eof = true;
+            } else {
+                length += read;
+            }
+        }
+
+        private int lastBoundary() {
+            boolean quoted = false;
+            int boundary = -1;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '"') {
+                    quoted = !quoted;
+                } else if (buffer[i] == '\n' && !quoted) {
+                    boundary = i;
+                }
+            }
+            return boundary;
+        }
+
+        private byte[] take(int count) {
+            byte[] block = Arrays.copyOf(buffer, count);
+            System.arraycopy(buffer, count, buffer, 0, length - count);
+            length -= count;
+            return block;
+        }
+    }
+
+    private RequestVehicle processRecord(CSVRecord record) throws IllegalArgumentException {
+        String editPermissionString = record.get("редактирование").trim().toLowerCase();
+        boolean editPermission;
+        switch (editPermissionString) {
+            case "+" -> editPermission = true;
+            case "yes" -> editPermission = true;
+            case "true" -> editPermission = true;
+            case "да" -> editPermission = true;
+            case "-" -> editPermission = false;
+            case "no" -> editPermission = false;
+            case "false" -> editPermission = false;
+            case "нет" -> editPermission = false;
+            default -> throw new ImportValidationException("Некорректность данных для импорта в поле редактирование");
+        }
+        RequestVehicle vehicle = new RequestVehicle(
+            record.get("название"),                    
+            Long.parseLong(record.get("x")),          
+            Double.parseDouble(record.get("y")),       
+            VehicleType.fromString(record.get("тип")).toString(),                        
+            Double.parseDouble(record.get("мощность")), 
+            Long.parseLong(record.get("колеса")),      
+            Long.parseLong(record.get("вместимость")), 
+            Double.parseDouble(record.get("путь")),    
+            Float.parseFloat(record.get("расход")),    
+            FuelType.fromString(record.get("топливо")).toString(),                    
+            Arrays.asList(record.get("создатели").split(" ")), 
+            editPermission
+        );
+
+        String constraintsError = vehicleService.checkNewConstraints(vehicle);
+        if(constraintsError != null) {
+            throw new ImportValidationException(constraintsError);
+        }
+
+        Set<ConstraintViolation<RequestVehicle>> violations = validator.validate(vehicle);
+        if (!violations.isEmpty()) {
+            StringBuilder errorMessage = new StringBuilder("Некорректность данных для импорта:\n");
+            
+            violations.forEach(violation -> {
+                String fieldName = violation.getPropertyPath().toString();
+                String message = violation.getMessage();
+                String value = violation.getInvalidValue() != null ? 
+                    violation.getInvalidValue().toString() : "null";
+                    
+                errorMessage.append(String.format(
+                    "- Поле '%s': %s (введенное значение: %s)\n", 
+                    fieldName, 
+                    message, 
+                    value
+                ));
+            });
+
+            throw new ImportValidationException(errorMessage.toString());
+        }
+
+        return vehicle;
+    }
+
+    private void validateHeaders(Set<String> headers) throws IOException {
+        if(headers.containsAll(REQUIRED_HEADERS)&&headers.size()!=12) throw new IOException();
+    }
+}
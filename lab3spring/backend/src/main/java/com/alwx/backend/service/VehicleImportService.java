@@ -1,202 +1,494 @@
 package com.alwx.backend.service;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.alwx.backend.controllers.exceptionHandlers.exceptions.BusinessException;
 import com.alwx.backend.controllers.exceptionHandlers.exceptions.ImportValidationException;
-import com.alwx.backend.dtos.RequestVehicle;
-import com.alwx.backend.models.enums.FuelType;
+import com.alwx.backend.dtos.ImportRow;
+import com.alwx.backend.dtos.ImportStatus;
+import com.alwx.backend.models.ImportRequest;
 import com.alwx.backend.models.enums.StatusType;
-import com.alwx.backend.models.enums.VehicleType;
+import com.alwx.backend.models.Vehicle;
+import com.alwx.backend.utils.ConstraintViolations;
+import com.alwx.backend.utils.TransactionRetrier;
+import com.alwx.backend.utils.UserError;
 
 import io.minio.errors.MinioException;
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 public class VehicleImportService {
-    private final List<String> REQUIRED_HEADERS = Arrays.asList(
-        "название", "x", "y", "тип", "мощность", "колеса", 
-        "вместимость", "путь", "расход", "топливо", "создатели", "редактирование"
-    );
+    private static final Logger logger = LoggerFactory.getLogger(VehicleImportService.class);
+
+    /**
+     * Назначение у владельца импорта, куда отправляется ход импорта (/user/queue/imports).
+     */
+    public static final String PROGRESS_DESTINATION = "/queue/imports";
+
+    private static final String CHUNK_ATOMICITY = "chunk";
+
+    private static final String COPY_ENGINE = "copy";
+
+    private static final String QUEUE_FULL = "Очередь импорта заполнена, повторите попытку позже";
+
+    private static final Pattern ERROR_MESSAGE = Pattern.compile("message=(.*?),");
 
-    private final Validator validator;
     private final VehicleService vehicleService;
     private final PlatformTransactionManager transactionManager;
     private final ImportRequestService importRequestService;
+    private final VehicleCsvReader vehicleCsvReader;
+    private final TransactionRetrier transactionRetrier;
+    private final EntityManager entityManager;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ImportScheduler importScheduler;
+    private final VehicleCopyLoader vehicleCopyLoader;
+    private final CoordinatesService coordinatesService;
 
-    public ResponseEntity<?> processImport(MultipartFile file, String token) {
+    /**
+     * file - весь файл в одной транзакции, части под точками сохранения;
+     * chunk - каждая часть в своей транзакции, прерванный импорт продолжается с контрольной точки.
+     */
+    @Value("${vehicles.import.atomicity:file}")
+    private String atomicity;
 
-        Long addedCarsCount = 0l;
-        String nameForFile = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-        List<? extends RequestVehicle> vehicles = readCars(file, token);
+    /**
+     * jpa - тс создаются по одной через VehicleService, copy - частями через COPY, см. {@link VehicleCopyLoader}.
+     */
+    @Value("${vehicles.import.engine:jpa}")
+    private String engine;
 
-        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
-        definition.setName("vehicleImportTransaction");
-        definition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
-        definition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    @Value("${vehicles.import.chunk-size:500}")
+    private int chunkSize;
 
-        TransactionStatus status = transactionManager.getTransaction(definition);
+    @Value("${vehicles.import.progress-interval-ms:1000}")
+    private long progressIntervalMs;
 
+    /**
+     * Сохраняет файл в MinIO и ставит импорт в очередь. Сам импорт выполняется в фоне,
+     * ход и результат приходят владельцу в {@link #PROGRESS_DESTINATION} и видны в таблице статусов.
+     * @param file Csv-файл
+     * @param token Токен аутентификации
+     * @return ResponseEntity с id заявки импорта
+     */
+    public ResponseEntity<?> processImport(MultipartFile file, String token) {
+        if (importScheduler.isFull()) {
+            throw new BusinessException(QUEUE_FULL);
+        }
+        String nameForFile = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
         try {
             importRequestService.saveFile(file, nameForFile);
+        } catch (MinioException e) {
+            throw new ImportValidationException("Ошибка сохранения в MinIO", token);
+        }
+        ImportRequest request = importRequestService.queue(token.substring(7), nameForFile, file.getSize());
+        if (!submit(request)) {
+            importRequestService.finish(request.getId(), StatusType.ERROR, 0, 0, 0, QUEUE_FULL);
+            importRequestService.deleteFile(nameForFile);
+            throw new BusinessException(QUEUE_FULL);
+        }
+        return accepted(request);
+    }
+
+    /**
+     * Ставит прерванный импорт обратно в очередь. Уже сохранённые записи при продолжении пропускаются.
+     * @param id Id заявки импорта
+     * @param token Токен аутентификации
+     * @return ResponseEntity с id заявки импорта
+     */
+    public ResponseEntity<?> resumeImport(Long id, String token) {
+        ImportRequest request = importRequestService.resume(id, token.substring(7));
+        if (!submit(request)) {
+            importRequestService.finish(request.getId(), StatusType.PARTIAL, request.getCount(), request.getRowsProcessed(), request.getBytesRead(), request.getMessage());
+            throw new BusinessException(QUEUE_FULL);
+        }
+        return accepted(request);
+    }
 
-            if(!vehicles.isEmpty()){
-                for (RequestVehicle vehicle : vehicles) {
-                    ResponseEntity<?> tmp = vehicleService.createVehicle(vehicle);
-                    if(tmp.getStatusCode() != HttpStatus.OK){
-                        throw new ImportValidationException(tmp.getBody().toString());
-                    }
-                } 
-                addedCarsCount = Integer.toUnsignedLong(vehicles.size());
+    private ResponseEntity<?> accepted(ImportRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Импорт поставлен в очередь");
+        response.put("id", request.getId());
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    private boolean submit(ImportRequest request) {
+        Long id = request.getId();
+        return importScheduler.submit(request.getUser().getUsername(), request.getBytesTotal(), () -> run(id));
+    }
+
+    /**
+     * Выполняет импорт из очереди: читает файл из MinIO и пишет его в выбранном режиме атомарности.
+     * Ошибка не выходит наружу, а записывается в заявку.
+     * @param id Id заявки импорта
+     */
+    private void run(Long id) {
+        ImportJob job = null;
+        try {
+            job = new ImportJob(importRequestService.start(id));
+            job.publish(StatusType.RUNNING, null);
+            job.open(importRequestService.openFile(job.request.getUid()));
+            if (CHUNK_ATOMICITY.equals(atomicity)) {
+                importByChunks(job);
+            } else {
+                importWholeFile(job);
+            }
+        } catch (Exception e) {
+            String message = describe(e);
+            if (job == null) {
+                logger.error("Не удалось запустить импорт {}", id, e);
+                importRequestService.interrupt(id, message);
+            } else if (job.committed > 0) {
+                job.finish(StatusType.PARTIAL, message + " Сохранено записей: " + job.committed + ".");
+            } else if (job.finish(StatusType.ERROR, message)) {
+                importRequestService.deleteFile(job.request.getUid());
             }
+            return;
+        } finally {
+            if (job != null) {
+                job.close();
+            }
+        }
+        job.finish(StatusType.DONE, null);
+    }
 
+    private String describe(Exception e) {
+        if (e instanceof DataIntegrityViolationException && ConstraintViolations.isViolationOf(e, Vehicle.NAME_CONSTRAINT)) {
+            return UserError.VEHICLE_NAME_EXISTS.getMessage();
+        }else if (e instanceof ImportValidationException || e instanceof BusinessException){
+            return e.getMessage();
+        }else if (e instanceof MinioException){
+            return "Ошибка чтения файла из MinIO";
+        }else if (e instanceof DataAccessException || e instanceof PersistenceException){
+            logger.warn("Импорт прерван ошибкой бд", e);
+            return "Ошибка сохранения в базу данных";
+        }else{
+            logger.error("Импорт прерван", e);
+            return "Ошибка импорта";
+        }
+    }
+
+    /**
+     * Импорт всего файла одной транзакцией. Файл читается потоком и пишется частями,
+     * после каждой части контекст сбрасывается и очищается; часть выполняется под точкой сохранения,
+     * чтобы при нарушении уникальности названия найти строку файла, которая к нему привела.
+     * Количество тс записывается в заявку после коммита, при завершении импорта: сама транзакция
+     * строку заявки не меняет, её в это время обновляет ход импорта из отдельных транзакций.
+     */
+    private void importWholeFile(ImportJob job) {
+        long added = 0;
+        TransactionStatus status = transactionManager.getTransaction(definition());
+        try (VehicleCsvReader.Chunks chunks = vehicleCsvReader.open(job.in, 0, chunkSize)) {
+            Set<String> names = new HashSet<>();
+            List<ImportRow> chunk;
+            while ((chunk = chunks.next()) != null) {
+                writeChunk(chunk, names, status);
+                chunk.forEach(row -> names.add(row.getVehicle().getName()));
+                added += chunk.size();
+                job.written(chunk.size());
+            }
             transactionManager.commit(status);
+        } finally {
+            if (!status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+        }
+        job.committed = added;
+    }
 
-        }catch(Exception e){
+    /**
+     * Импорт с фиксацией каждой части отдельной транзакцией. Count заявки сдвигается
+     * в транзакции каждой части и служит контрольной точкой: при ошибке сохранённые части остаются,
+     * заявка переходит в PARTIAL, и при продолжении записи до точки пропускаются.
+     */
+    private void importByChunks(ImportJob job) {
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager, definition());
+        Set<String> names = new HashSet<>();
 
-            transactionManager.rollback(status);
+        try (VehicleCsvReader.Chunks chunks = vehicleCsvReader.open(job.in, job.committed, chunkSize)) {
+            List<ImportRow> chunk;
+            while ((chunk = chunks.next()) != null) {
+                List<ImportRow> current = chunk;
+                transactionRetrier.execute("importChunk", () -> chunkTransaction.execute(status -> {
+                    writeChunk(current, names, status);
+                    importRequestService.advance(job.request.getId(), current.size());
+                    return null;
+                }));
+                current.forEach(row -> names.add(row.getVehicle().getName()));
+                job.committed += current.size();
+                job.written(current.size());
+            }
+        }
+    }
 
-            if(e.getClass().equals(ImportValidationException.class)){
-                importRequestService.deleteFile(nameForFile);
-                String errorMessage = e.getMessage();
-                Pattern pattern = Pattern.compile("message=(.*?),");
-                Matcher matcher = pattern.matcher(errorMessage);
-                if (matcher.find()) {
-                    errorMessage = matcher.group(1).trim();
+    /**
+     * Транзакция импорта в READ COMMITTED: {@link CoordinatesService#resolveIds} вставляет координаты
+     * в ней же и находит пары, вставленные параллельно, только с новым снимком на каждый запрос,
+     * а уникальность названий обеспечивает индекс бд, а не снимок.
+     */
+    private DefaultTransactionDefinition definition() {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setName("vehicleImportTransaction");
+        definition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return definition;
+    }
+
+    /**
+     * Сохраняет часть файла в текущей транзакции под точкой сохранения выбранным способом
+     * (vehicles.import.engine), сбрасывает тс в бд и очищает контекст, чтобы память не росла с размером файла.
+     * Если при вставке нарушена уникальность названия (тс с таким названием создали параллельно),
+     * часть откатывается к точке сохранения и повторяется по строке, чтобы назвать строку в ошибке.
+     * @param chunk Часть файла
+     * @param names Названия из уже сохранённых частей файла
+     * @param status Текущая транзакция
+     */
+    private void writeChunk(List<ImportRow> chunk, Set<String> names, TransactionStatus status) {
+        boolean copy = COPY_ENGINE.equals(engine);
+        checkNames(chunk, names, !copy);
+        resolveCoordinates(chunk);
+
+        Object savepoint = status.createSavepoint();
+        try {
+            if (copy) {
+                vehicleCopyLoader.load(chunk);
+            } else {
+                OwnerCache ownerCache = ownerCache(chunk);
+                for (ImportRow row : chunk) {
+                    create(row, ownerCache);
                 }
-                throw new ImportValidationException(errorMessage, token);
-            }else if (e.getClass().equals(MinioException.class)){
-                throw new ImportValidationException("Ошибка сохранения в MinIO", token);
-            }else if (e.getClass().equals(InvalidDataAccessResourceUsageException.class)){
-                importRequestService.deleteFile(nameForFile);
-                throw new BusinessException("Ошибка сохранения в базу данных");
-            }else{
-                e.printStackTrace();
-                throw new ImportValidationException(e.getMessage(), token);
-            } 
-        }
-        importRequestService.saveT(StatusType.DONE, token.substring(7), addedCarsCount, nameForFile);
-    
-        return new ResponseEntity<>(addedCarsCount, HttpStatus.OK);
-    }
-
-    private List<? extends RequestVehicle> readCars(MultipartFile file, String token){
-        List<RequestVehicle> vehicles = new ArrayList<>();
-        
-        try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                .setHeader()
-                .setSkipHeaderRecord(true)
-                .setIgnoreHeaderCase(true)
-                .setTrim(true)
-                .build();
-
-            try (CSVParser parser = new CSVParser(reader, csvFormat)) {
-                validateHeaders(parser.getHeaderMap().keySet());
-                for (CSVRecord record : parser) {
-                    RequestVehicle tmp = processRecord(record);
-                    vehicles.add(tmp);
-                
+            }
+            entityManager.flush();
+        } catch (PersistenceException | DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolationOf(e, Vehicle.NAME_CONSTRAINT)) {
+                throw e;
+            }
+            status.rollbackToSavepoint(savepoint);
+            entityManager.clear();
+            throw locateNameConflict(chunk, ownerCache(chunk), status);
+        }
+        status.releaseSavepoint(savepoint);
+        entityManager.clear();
+    }
+
+    /**
+     * Находит и блокирует координаты части до точки сохранения: откат к точке сохранения
+     * снимает блокировки строк, взятые после неё, а строки тс части находят координаты уже в кеше.
+     */
+    private void resolveCoordinates(List<ImportRow> chunk) {
+        if (!coordinatesService.isShared()) {
+            return;
+        }
+        Set<List<Object>> keys = new LinkedHashSet<>();
+        chunk.forEach(row -> keys.add(CoordinatesService.key(row.getVehicle().getX(), row.getVehicle().getY())));
+        coordinatesService.resolveIds(keys);
+    }
+
+    private OwnerCache ownerCache(List<ImportRow> chunk) {
+        OwnerCache ownerCache = vehicleService.newOwnerCache();
+        Set<String> ownerNames = new HashSet<>();
+        chunk.forEach(row -> ownerNames.addAll(row.getVehicle().getNamesOfOwners()));
+        ownerCache.load(ownerNames);
+        return ownerCache;
+    }
+
+    private ImportValidationException locateNameConflict(List<ImportRow> chunk, OwnerCache ownerCache, TransactionStatus status) {
+        for (ImportRow row : chunk) {
+            Object savepoint = status.createSavepoint();
+            try {
+                create(row, ownerCache);
+                entityManager.flush();
+            } catch (PersistenceException | DataIntegrityViolationException e) {
+                if (ConstraintViolations.isViolationOf(e, Vehicle.NAME_CONSTRAINT)) {
+                    return nameTaken(row);
                 }
+                throw e;
+            }
+            status.releaseSavepoint(savepoint);
+        }
+        return new ImportValidationException(UserError.VEHICLE_NAME_EXISTS.getMessage());
+    }
+
+    private void create(ImportRow row, OwnerCache ownerCache) {
+        ResponseEntity<?> tmp = vehicleService.createVehicle(row.getVehicle(), ownerCache);
+        if(tmp.getStatusCode() != HttpStatus.OK){
+            String errorMessage = tmp.getBody().toString();
+            Matcher matcher = ERROR_MESSAGE.matcher(errorMessage);
+            if (matcher.find()) {
+                errorMessage = matcher.group(1).trim();
+            }
+            throw new ImportValidationException("Запись " + row.getNumber() + ": " + errorMessage);
+        }
+    }
+
+    /**
+     * Проверяет уникальность названий до вставки: тс пишутся в бд пакетами при сбросе контекста,
+     * и нарушение индекса уже нельзя было бы связать с конкретной строкой файла.
+     * @param chunk Часть файла
+     * @param names Названия из уже сохранённых частей файла
+     * @param againstTable Проверять ли занятые названия в таблице (при COPY это делает {@link VehicleCopyLoader})
+     */
+    private void checkNames(List<ImportRow> chunk, Set<String> names, boolean againstTable) {
+        Set<String> chunkNames = new HashSet<>();
+        for (ImportRow row : chunk) {
+            String name = row.getVehicle().getName();
+            if (names.contains(name) || !chunkNames.add(name)) {
+                throw nameTaken(row);
+            }
+        }
+        List<String> taken = againstTable ? vehicleService.findExistingNames(chunkNames) : List.of();
+        if (!taken.isEmpty()) {
+            chunk.stream()
+                .filter(row -> row.getVehicle().getName().equals(taken.get(0)))
+                .findFirst()
+                .ifPresent(row -> { throw nameTaken(row); });
+        }
+    }
+
+    private ImportValidationException nameTaken(ImportRow row) {
+        return new ImportValidationException("Запись " + row.getNumber() + ": "
+            + UserError.VEHICLE_NAME_EXISTS.getMessage() + " Название: " + row.getVehicle().getName());
+    }
+
+    /**
+     * Состояние одного выполняемого импорта. Ход сохраняется в заявку и отправляется владельцу
+     * не чаще vehicles.import.progress-interval-ms, смена статуса - сразу.
+     */
+    private class ImportJob implements Closeable {
+        private final ImportRequest request;
+        private final String username;
+        private CountingInputStream in;
+        private long committed;
+        private long rows;
+        private long publishedAt;
+
+        ImportJob(ImportRequest request) {
+            this.request = request;
+            this.username = request.getUser().getUsername();
+            this.committed = request.getCount();
+            this.rows = request.getCount();
+        }
+
+        void open(InputStream file) {
+            in = new CountingInputStream(file);
+        }
+
+        void written(int count) {
+            rows += count;
+            long now = System.currentTimeMillis();
+            if (now - publishedAt >= progressIntervalMs) {
+                importRequestService.progress(request.getId(), rows, bytesRead());
+                publish(StatusType.RUNNING, null);
             }
-        }catch (Exception e) {
-            if(e.getClass().equals(ImportValidationException.class)){
-                throw new ImportValidationException(e.getMessage(), token);
-            }else{
-                System.out.println();
-                throw new ImportValidationException("Ошибка в структуре csv", token);
-            } 
-        }
-        return vehicles;
-    }
-
-    private RequestVehicle processRecord(CSVRecord record) throws IllegalArgumentException {
-        String editPermissionString = record.get("редактирование").trim().toLowerCase();
-        boolean editPermission;
-        switch (editPermissionString) {
-            case "+" -> editPermission = true;
-            case "yes" -> editPermission = true;
-            case "true" -> editPermission = true;
-            case "да" -> editPermission = true;
-            case "-" -> editPermission = false;
-            case "no" -> editPermission = false;
-            case "false" -> editPermission = false;
-            case "нет" -> editPermission = false;
-            default -> throw new ImportValidationException("Некорректность данных для импорта в поле редактирование");
-        }
-        RequestVehicle vehicle = new RequestVehicle(
-            record.get("название"),                    
-            Long.parseLong(record.get("x")),          
-            Double.parseDouble(record.get("y")),       
-            VehicleType.fromString(record.get("тип")).toString(),                        
-            Double.parseDouble(record.get("мощность")), 
-            Long.parseLong(record.get("колеса")),      
-            Long.parseLong(record.get("вместимость")), 
-            Double.parseDouble(record.get("путь")),    
-            Float.parseFloat(record.get("расход")),    
-            FuelType.fromString(record.get("топливо")).toString(),                    
-            Arrays.asList(record.get("создатели").split(" ")), 
-            editPermission
-        );
-
-        String constraintsError = vehicleService.checkNewConstraints(vehicle);
-        if(constraintsError != null) {
-            throw new ImportValidationException(constraintsError);
-        }
-
-        Set<ConstraintViolation<RequestVehicle>> violations = validator.validate(vehicle);
-        if (!violations.isEmpty()) {
-            StringBuilder errorMessage = new StringBuilder("Некорректность данных для импорта:\n");
-            
-            violations.forEach(violation -> {
-                String fieldName = violation.getPropertyPath().toString();
-                String message = violation.getMessage();
-                String value = violation.getInvalidValue() != null ? 
-                    violation.getInvalidValue().toString() : "null";
-                    
-                errorMessage.append(String.format(
-                    "- Поле '%s': %s (введенное значение: %s)\n", 
-                    fieldName, 
-                    message, 
-                    value
-                ));
-            });
-
-            throw new ImportValidationException(errorMessage.toString());
-        }
-
-        System.out.println(vehicle.toString());
-
-        return vehicle;
-    }
-
-    private void validateHeaders(Set<String> headers) throws IOException {
-        if(headers.containsAll(REQUIRED_HEADERS)&&headers.size()!=12) throw new IOException();
-    }
-}
\ No newline at end of file
+        }
+
+        /**
+         * @return false, если импорт уже продолжен другим экземпляром и заявка не изменена
+         */
+        boolean finish(StatusType status, String message) {
+            if (!importRequestService.finish(request.getId(), status, committed, rows, bytesRead(), message)) {
+                return false;
+            }
+            publish(status, message);
+            messagingTemplate.convertAndSend("/topic/istat", "{\"message\": \"Данные в таблице статусов обновлены\"}");
+            return true;
+        }
+
+        void publish(StatusType status, String message) {
+            publishedAt = System.currentTimeMillis();
+            ImportStatus progress = new ImportStatus();
+            progress.setId(request.getId());
+            progress.setStatus(status.toString());
+            progress.setUsername(username);
+            progress.setCount(committed);
+            progress.setUid(request.getUid());
+            progress.setRowsProcessed(rows);
+            progress.setBytesRead(bytesRead());
+            progress.setBytesTotal(request.getBytesTotal());
+            progress.setMessage(message);
+            messagingTemplate.convertAndSendToUser(username, PROGRESS_DESTINATION, progress);
+        }
+
+        private long bytesRead() {
+            return in == null ? 0 : in.count;
+        }
+
+        @Override
+        public void close() {
+            if (in == null) {
+                return;
+            }
+            try {
+                in.close();
+            } catch (IOException e) {
+                logger.warn("Не удалось закрыть файл импорта {}", request.getUid());
+            }
+        }
+    }
+
+    /**
+     * Поток, считающий прочитанные байты.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.alwx.backend.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.alwx.backend.dtos.AppError;
+import com.alwx.backend.dtos.VehicleMapCell;
+import com.alwx.backend.dtos.VehicleMapCellRow;
+import com.alwx.backend.dtos.VehicleMapPoint;
+import com.alwx.backend.dtos.VehicleMapPointRow;
+import com.alwx.backend.dtos.VehicleMapView;
+import com.alwx.backend.repositories.VehicleRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сервис карты тс: агрегирует тс видимой области по ячейкам сетки,
+ * размер которой зависит от масштаба. Плотные ячейки отдаются кластерами,
+ * из разреженных - отдельные тс.
+ */
+@Service
+@RequiredArgsConstructor
+public class VehicleMapService {
+    /**
+     * Максимальный масштаб: сетка 4 << 5 = 128 ячеек по каждой оси.
+     */
+    public static final int MAX_ZOOM = 5;
+
+    private final VehicleRepository vehicleRepository;
+
+    /**
+     * Максимальное количество тс в ячейке, при котором тс отдаются отдельными точками.
+     */
+    @Value("${vehicles.map.sparse-cell-size:5}")
+    private int sparseCellSize;
+
+    /**
+     * Получает кластеры и точки тс в заданной области.
+     * @param minX Левая граница области
+     * @param maxX Правая граница области
+     * @param minY Нижняя граница области
+     * @param maxY Верхняя граница области
+     * @param zoom Масштаб от 0 до {@link #MAX_ZOOM}
+     * @return ResponseEntity с кластерами и точками или ошибкой
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getMapView(Long minX, Long maxX, Double minY, Double maxY, int zoom) {
+        if (minX >= maxX || minY >= maxY || minY.isNaN() || maxY.isNaN() || minY.isInfinite() || maxY.isInfinite()) {
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Некорректные границы карты"), HttpStatus.BAD_REQUEST);
+        }
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Масштаб карты должен быть от 0 до " + MAX_ZOOM), HttpStatus.BAD_REQUEST);
+        }
+
+        int grid = 4 << zoom;
+        double cellWidth = (double) (maxX - minX) / grid;
+        double cellHeight = (maxY - minY) / grid;
+
+        Map<Long, VehicleMapCell> cells = new LinkedHashMap<>();
+        for (VehicleMapCellRow row : vehicleRepository.findMapCells(minX, maxX, minY, maxY, grid, cellWidth, cellHeight)) {
+            long key = (long) row.getCellX() * grid + row.getCellY();
+            VehicleMapCell cell = cells.computeIfAbsent(key, k -> new VehicleMapCell(
+                row.getCellX(),
+                row.getCellY(),
+                minX + (row.getCellX() + 0.5) * cellWidth,
+                minY + (row.getCellY() + 0.5) * cellHeight,
+                0L,
+                new LinkedHashMap<>()
+            ));
+            cell.setCount(cell.getCount() + row.getCount());
+            cell.getFuelTypes().merge(row.getFuelType(), row.getCount(), Long::sum);
+        }
+
+        List<VehicleMapCell> denseCells = new ArrayList<>();
+        boolean hasSparse = false;
+        for (VehicleMapCell cell : cells.values()) {
+            if (cell.getCount() > sparseCellSize) {
+                denseCells.add(cell);
+            } else {
+                hasSparse = true;
+            }
+        }
+
+        List<VehicleMapPoint> points = new ArrayList<>();
+        if (hasSparse) {
+            for (VehicleMapPointRow row : vehicleRepository.findMapPoints(minX, maxX, minY, maxY, grid, cellWidth, cellHeight, sparseCellSize)) {
+                points.add(new VehicleMapPoint(row));
+            }
+        }
+
+        return ResponseEntity.ok(new VehicleMapView(grid, cellWidth, cellHeight, denseCells, points));
+    }
+}
@@ -0,0 +1,93 @@
+package com.alwx.backend.service;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Модель чтения таблицы тс: сериализованный снимок всей таблицы с версией.
+ * Версия - текущая версия общего журнала изменений ({@link VehicleChangeLogService}),
+ * поэтому изменения, закоммиченные через любой экземпляр сервера, меняют её и ETag.
+ * Снимок пересобирается лениво при первом запросе новой версии.
+ */
+@Service
+@RequiredArgsConstructor
+public class VehicleReadModel {
+    private final VehicleService vehicleService;
+    private final ObjectMapper objectMapper;
+    private final VehicleChangeLogService vehicleChangeLogService;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Сериализованная таблица и версия журнала изменений, на момент которой она была прочитана.
+     * С этой версии клиент продолжает применять изменения.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final long version;
+        private final String eTag;
+        private final byte[] json;
+    }
+
+    /**
+     * Отдаёт таблицу целиком с ETag, либо 304, если у клиента актуальная версия.
+     * @param ifNoneMatch Значение заголовка If-None-Match
+     * @return ResponseEntity с таблицей или 304
+     */
+    public ResponseEntity<?> getTable(String ifNoneMatch) {
+        long version = vehicleChangeLogService.getCurrentVersion();
+        String eTag = eTag(version);
+        if (ifNoneMatch != null && ifNoneMatch.contains(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        Snapshot current = getSnapshot(version);
+        return ResponseEntity.ok()
+            .eTag(current.getETag())
+            .header("X-Table-Version", String.valueOf(current.getVersion()))
+            .cacheControl(CacheControl.noCache())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(current.getJson());
+    }
+
+    /**
+     * Возвращает снимок версии журнала, пересобирая его при необходимости.
+     * Версия читается до таблицы, поэтому снимок может оказаться новее
+     * своей версии, но никогда не старее.
+     * @param version Текущая версия журнала изменений
+     * @return Снимок таблицы
+     */
+    public Snapshot getSnapshot(long version) {
+        Snapshot current = snapshot;
+        if (current != null && current.getVersion() >= version) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot != null && snapshot.getVersion() >= version) {
+                return snapshot;
+            }
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(vehicleService.getAllVehicle());
+                snapshot = new Snapshot(version, eTag(version), json);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Ошибка сериализации таблицы тс", e);
+            }
+            return snapshot;
+        }
+    }
+
+    private String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+}
@@ -1,13 +1,16 @@
 package com.alwx.backend.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.stream.Stream;
 
 import org.hibernate.Hibernate;
 import org.springframework.http.HttpStatus;
@@ -21,17 +24,26 @@ import org.springframework.util.StringUtils;
 import com.alwx.backend.controllers.exceptionHandlers.exceptions.BusinessException;
 import com.alwx.backend.dtos.AppError;
 import com.alwx.backend.dtos.RequestVehicle;
-import com.alwx.backend.models.Coordinates;
+import com.alwx.backend.dtos.SimpleInfoAboutCars;
+import com.alwx.backend.dtos.VehiclePage;
+import com.alwx.backend.dtos.VehicleRow;
+import com.alwx.backend.models.Position;
 import com.alwx.backend.models.User;
 import com.alwx.backend.models.Vehicle;
 import com.alwx.backend.models.enums.Action;
 import com.alwx.backend.models.enums.FuelType;
+import com.alwx.backend.models.enums.VehicleSortField;
 import com.alwx.backend.models.enums.VehicleType;
-import com.alwx.backend.repositories.CoordinatesRepositury;
 import com.alwx.backend.repositories.UserRepository;
 import com.alwx.backend.repositories.VehicleRepository;
 import com.alwx.backend.utils.UserError;
+import com.alwx.backend.utils.VehicleCursor;
 import com.alwx.backend.utils.jwt.JwtTokenUtil;
+import com.alwx.backend.utils.locks.KeyLockProvider;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import lombok.RequiredArgsConstructor;
 
@@ -41,42 +53,234 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class VehicleService {
+    /**
+     * Максимальный размер страницы при постраничной выборке.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final VehicleRepository vehicleRepository;
-    private final CoordinatesRepositury coordinatesRepositury;
+    private final CoordinatesService coordinatesService;
     private final UserRepository userRepository;
     private final JwtTokenUtil jwtTokenUtil;
     private final RoleService roleService;
     private final UserActionService userActionService;
+    private final VehicleChangeTracker vehicleChangeTracker;
+    private final ObjectMapper objectMapper;
+    private final KeyLockProvider keyLockProvider;
     
 
     /**
-     * Получает все автомобили.
-     * @return Список всех автомобилей
+     * Получает все автомобили в виде строк таблицы.
+     * @return Список с информацией о всех автомобилях
+     */
+    @Transactional(readOnly = true)
+    public List<SimpleInfoAboutCars> getAllVehicle(){
+        List<SimpleInfoAboutCars> vehicles = new ArrayList<>();
+        for(VehicleRow row : vehicleRepository.findAllRows()){
+            vehicles.add(new SimpleInfoAboutCars(row));
+        }
+        return vehicles;
+    }
+
+    /**
+     * Пишет все автомобили JSON-массивом в выходной поток, не собирая список в памяти:
+     * строки читаются курсором и сразу сериализуются.
+     * @param out Поток ответа
+     * @throws IOException При ошибке записи
+     */
+    @Transactional(readOnly = true)
+    public void writeAllVehicle(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(SimpleInfoAboutCars.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<VehicleRow> rows = vehicleRepository.streamAllRows();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Iterator<VehicleRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, new SimpleInfoAboutCars(iterator.next()));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Получает страницу автомобилей с keyset-пагинацией.
+     * @param sort Поле сортировки (id, name, enginePower)
+     * @param after Курсор последней строки предыдущей страницы, null для первой страницы
+     * @param size Размер страницы
+     * @return ResponseEntity со страницей автомобилей и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getVehiclePage(String sort, String after, int size){
+        if(size < 1 || size > MAX_PAGE_SIZE){
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE), HttpStatus.BAD_REQUEST);
+        }
+
+        VehicleCursor cursor;
+        try{
+            VehicleSortField sortField = VehicleSortField.fromString(sort);
+            cursor = StringUtils.hasText(after) ? VehicleCursor.decode(after) : VehicleCursor.start(sortField);
+            if(cursor.getSortField() != sortField){
+                throw new IllegalArgumentException();
+            }
+        }catch(IllegalArgumentException e){
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Некорректные параметры пагинации"), HttpStatus.BAD_REQUEST);
+        }
+
+        int limit = size + 1;
+        List<VehicleRow> rows = switch (cursor.getSortField()) {
+            case ID -> vehicleRepository.findPageOrderById(cursor.getId(), limit);
+            case NAME -> vehicleRepository.findPageOrderByName(cursor.getName(), cursor.getId(), limit);
+            case ENGINE_POWER -> vehicleRepository.findPageOrderByEnginePower(cursor.getEnginePower(), cursor.getId(), limit);
+        };
+
+        boolean hasNext = rows.size() > size;
+        List<SimpleInfoAboutCars> page = new ArrayList<>();
+        for(VehicleRow row : rows.subList(0, Math.min(size, rows.size()))){
+            page.add(new SimpleInfoAboutCars(row));
+        }
+        String next = hasNext ? VehicleCursor.after(cursor.getSortField(), page.get(page.size() - 1)).encode() : null;
+
+        return ResponseEntity.ok(new VehiclePage(page, next));
+    }
+
+    /**
+     * Получает страницу автомобилей, отфильтрованных на стороне бд.
+     * Режимы совпадают с фильтрами на фронте: minEnginePower, namePrefix, vehicleType, wheelsRange.
+     * @param filter Режим фильтрации
+     * @param namePrefix Начало имени (для namePrefix), пустое начало подходит любому имени
+     * @param vehicleType Тип тс (для vehicleType)
+     * @param wheelsMin Минимум колёс (для wheelsRange)
+     * @param wheelsMax Максимум колёс (для wheelsRange)
+     * @param after Курсор последней строки предыдущей страницы, null для первой страницы
+     * @param size Размер страницы
+     * @return ResponseEntity со страницей автомобилей и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getFilteredVehiclePage(String filter, String namePrefix, String vehicleType, Long wheelsMin, Long wheelsMax, String after, int size){
+        if(size < 1 || size > MAX_PAGE_SIZE){
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE), HttpStatus.BAD_REQUEST);
+        }
+
+        Long afterId;
+        try{
+            VehicleCursor cursor = StringUtils.hasText(after) ? VehicleCursor.decode(after) : VehicleCursor.start(VehicleSortField.ID);
+            if(cursor.getSortField() != VehicleSortField.ID){
+                throw new IllegalArgumentException();
+            }
+            afterId = cursor.getId();
+        }catch(IllegalArgumentException e){
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Некорректные параметры пагинации"), HttpStatus.BAD_REQUEST);
+        }
+
+        int limit = size + 1;
+        List<VehicleRow> rows;
+        switch (filter) {
+            case "minEnginePower" -> rows = StringUtils.hasText(after) ? new ArrayList<>() : vehicleRepository.findMinEnginePower();
+            case "namePrefix" -> rows = StringUtils.hasLength(namePrefix)
+                ? vehicleRepository.findPageByNamePrefix(escapeLike(namePrefix) + "%", afterId, limit)
+                : vehicleRepository.findPageOrderById(afterId, limit);
+            case "vehicleType" -> {
+                VehicleType type;
+                try{
+                    type = VehicleType.fromString(String.valueOf(vehicleType));
+                }catch(IllegalArgumentException e){
+                    return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Неверный тип транспорта"), HttpStatus.BAD_REQUEST);
+                }
+                rows = vehicleRepository.findPageByType(type.name(), afterId, limit);
+            }
+            case "wheelsRange" -> {
+                if(wheelsMin == null || wheelsMax == null){
+                    return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Не задан диапазон количества колёс"), HttpStatus.BAD_REQUEST);
+                }
+                rows = vehicleRepository.findPageByWheelsRange(wheelsMin, wheelsMax, afterId, limit);
+            }
+            default -> {
+                return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Неизвестный фильтр: " + filter), HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<SimpleInfoAboutCars> page = new ArrayList<>();
+        for(VehicleRow row : rows.subList(0, Math.min(size, rows.size()))){
+            page.add(new SimpleInfoAboutCars(row));
+        }
+        String next = hasNext ? VehicleCursor.after(VehicleSortField.ID, page.get(page.size() - 1)).encode() : null;
+
+        return ResponseEntity.ok(new VehiclePage(page, next));
+    }
+
+    /**
+     * Сверяет версию тс с заголовком If-Match.
+     * @param vehicle Автомобиль
+     * @param ifMatch Значение заголовка, null или * - без проверки
+     * @return ResponseEntity с ошибкой или null, если версия совпала
+     */
+    private ResponseEntity<?> checkIfMatch(Vehicle vehicle, String ifMatch){
+        if(ifMatch == null || ifMatch.trim().equals("*")){
+            return null;
+        }
+        for(String tag : ifMatch.split(",")){
+            String value = tag.trim();
+            if(value.startsWith("W/")){
+                value = value.substring(2);
+            }
+            value = value.replace("\"", "");
+            try{
+                if(Long.valueOf(value).equals(vehicle.getVersion())){
+                    return null;
+                }
+            }catch(NumberFormatException e){
+                return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Некорректный заголовок If-Match"), HttpStatus.BAD_REQUEST);
+            }
+        }
+        return new ResponseEntity<>(
+            new AppError(HttpStatus.PRECONDITION_FAILED.value(), "ТС " + vehicle.getName() + " было изменено другим пользователем, обновите данные"),
+            HttpStatus.PRECONDITION_FAILED
+        );
+    }
+
+    private String eTag(Long version){
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Экранирует спецсимволы like, чтобы префикс искался буквально.
+     * @param value Префикс
+     * @return Экранированный префикс
+     */
+    private String escapeLike(String value){
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Получает один автомобиль с ETag его версии.
+     * @param id ID автомобиля
+     * @return ResponseEntity с информацией о автомобиле
      */
     @Transactional(readOnly = true)
-    public List<? extends Vehicle> getAllVehicle(){
-        return vehicleRepository.findAll();
+    public ResponseEntity<?> getVehicle(Long id){
+        List<VehicleRow> rows = vehicleRepository.findRowsByIds(List.of(id));
+        if(rows.isEmpty()){
+            return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Выбранной машины нет в репозитории"), HttpStatus.BAD_REQUEST);
+        }
+        SimpleInfoAboutCars vehicle = new SimpleInfoAboutCars(rows.get(0));
+        return ResponseEntity.ok().eTag(eTag(vehicle.getVersion())).body(vehicle);
     }
 
     /**
-     * Обновляет информацию о автомобиле.
+     * Обновляет информацию о автомобиле. Конкурентные правки обнаруживаются по версии строки,
+     * поэтому достаточно уровня изоляции по умолчанию. Уникальность названия проверяет индекс бд.
      * @param id ID автомобиля
      * @param newVehicle Объект с данными для обновления
      * @param token Токен аутентификации
-     * @return ResponseEntity с результатом обновления
+     * @param ifMatch Значение заголовка If-Match с версией, которую видел клиент, может быть null
+     * @return ResponseEntity с результатом обновления и ETag новой версии
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public ResponseEntity<?> updateVehicle(Long id, RequestVehicle newVehicle ,String token){
-
-        if(vehicleRepository.existsByName(newVehicle.getName())){
-            return new ResponseEntity<>(
-                new AppError(
-                    HttpStatus.BAD_REQUEST.value(), 
-                    "Машина с таким именем уже существует."
-                ), 
-                HttpStatus.BAD_REQUEST
-            );
-        }
+    @Transactional
+    public ResponseEntity<?> updateVehicle(Long id, RequestVehicle newVehicle ,String token, String ifMatch){
+        keyLockProvider.lockForTransaction(List.of(KeyLockProvider.vehicleId(id)));
 
         Optional<Vehicle> vehicleOpt = vehicleRepository.findById(id);
         if(!vehicleOpt.isPresent()){
@@ -84,25 +288,17 @@ public class VehicleService {
         }
         Vehicle vehicle = vehicleOpt.get();
 
+        ResponseEntity<?> preconditionError = checkIfMatch(vehicle, ifMatch);
+        if(preconditionError != null){
+            return preconditionError;
+        }
+
         Optional<User> userOpt = userRepository.findByUsername(jwtTokenUtil.getUsername(token));
         if(!userOpt.isPresent()){
             return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Ваш токен не действителен"), HttpStatus.BAD_REQUEST);
         }
         User user = userOpt.get();
 
-        Coordinates coord;
-        Optional<Coordinates> coordOpt = coordinatesRepositury.findByXAndY(newVehicle.getX(), newVehicle.getY());
-        if (coordOpt.isPresent()) {
-            coord = coordOpt.get();
-        } else {
-            coord = new Coordinates();
-            coord.setX(newVehicle.getX());
-            coord.setY(newVehicle.getY());
-            coord = coordinatesRepositury.save(coord);
-        }
-
-        Long oldCoordinatesId = vehicle.getCoordinates().getId();
-
         
         
         if((user.getRoles().contains(roleService.getAdminRole()) && vehicle.getPermissionToEdit())
@@ -120,7 +316,7 @@ public class VehicleService {
             }
 
             vehicle.setName(newVehicle.getName());
-            vehicle.setCoordinates(coord);
+            coordinatesService.place(vehicle, newVehicle.getX(), newVehicle.getY());
             LocalDateTime localDateTime = LocalDateTime.now();
             vehicle.setCreationDate(localDateTime);
             VehicleType vehicleType = VehicleType.fromString(newVehicle.getType());
@@ -133,13 +329,7 @@ public class VehicleService {
             FuelType fuelType = FuelType.fromString(newVehicle.getFuelType());
             vehicle.setFuelType(fuelType);
 
-            List<String> owners = newVehicle.getNamesOfOwners();
-            List<User> convertOwners = new ArrayList<>();
-            for(String owner : owners){
-                if(userRepository.findByUsername(owner).isPresent()){
-                    convertOwners.add(userRepository.findByUsername(owner).get());
-                }
-            }
+            List<User> convertOwners = newOwnerCache().resolve(newVehicle.getNamesOfOwners());
 
             if(convertOwners.size() > 3){
                 throw new BusinessException("Превышено максимальное количество владельцев (3)");
@@ -153,14 +343,10 @@ public class VehicleService {
                 vehicle.setPermissionToEdit(newVehicle.getPermissionToEdit());
             }
             
-            vehicleRepository.save(vehicle);
-
-            if (!oldCoordinatesId.equals(coord.getId()) && 
-                vehicleRepository.findAllByCoordinatesId(oldCoordinatesId).isEmpty()) {
-                coordinatesRepositury.deleteById(oldCoordinatesId);
-            }
+            vehicleRepository.saveAndFlush(vehicle);
+            vehicleChangeTracker.recordUpsert(vehicle.getId());
 
-            return ResponseEntity.ok("Вы успешно обновили машину");
+            return ResponseEntity.ok().eTag(eTag(vehicle.getVersion())).body("Вы успешно обновили машину");
         }else{
             return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Вы не можете обновить этот ТС, так как он не принадлежит вам"), HttpStatus.BAD_REQUEST);
         }
@@ -171,17 +357,35 @@ public class VehicleService {
      * @param id ID автомобиля
      * @param token Токен аутентификации
      * @param reassignId ID автомобиля, на который будет переназначено ТС
+     * @param ifMatch Значение заголовка If-Match с версией, которую видел клиент, может быть null
      * @return ResponseEntity с результатом удаления
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public ResponseEntity<?> deleteVehicle(Long id, String token, String reassignId) {
+    @Transactional
+    public ResponseEntity<?> deleteVehicle(Long id, String token, String reassignId, String ifMatch) {
+        Long reassignVehicleId = null;
+        if (StringUtils.hasText(reassignId)) {
+            try {
+                reassignVehicleId = Long.valueOf(reassignId.trim());
+            } catch (NumberFormatException e) {
+                return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Некорректный id машины для переназначения"), HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        List<String> lockKeys = new ArrayList<>(List.of(KeyLockProvider.vehicleId(id)));
+        if (reassignVehicleId != null) {
+            lockKeys.add(KeyLockProvider.vehicleId(reassignVehicleId));
+        }
+        keyLockProvider.lockForTransaction(lockKeys);
+
         Optional<Vehicle> vehicleOpt = vehicleRepository.findById(id);
         if (!vehicleOpt.isPresent()) {
             return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Машины нет в репозитории"), HttpStatus.BAD_REQUEST);
         }
         Vehicle vehicle = vehicleOpt.get();
-        Long coordinatesId = vehicle.getCoordinates().getId();
-
+        ResponseEntity<?> preconditionError = checkIfMatch(vehicle, ifMatch);
+        if (preconditionError != null) {
+            return preconditionError;
+        }
         Optional<User> userOpt = userRepository.findByUsername(jwtTokenUtil.getUsername(token));
         if (!userOpt.isPresent()) {
             return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Ваш токен неверен"), HttpStatus.BAD_REQUEST);
@@ -189,8 +393,8 @@ public class VehicleService {
         User user = userOpt.get();
 
         Vehicle vehicleReas;
-        if (StringUtils.hasText(reassignId)) {
-            Optional<Vehicle> vehicleReasOpt = vehicleRepository.findById(Long.parseLong(reassignId));
+        if (reassignVehicleId != null) {
+            Optional<Vehicle> vehicleReasOpt = vehicleRepository.findById(reassignVehicleId);
             if (!vehicleReasOpt.isPresent()) {
                 return new ResponseEntity<>(new AppError(HttpStatus.BAD_REQUEST.value(), "Машины для переназначения нет в репозитории"), HttpStatus.BAD_REQUEST);
             }
@@ -198,26 +402,18 @@ public class VehicleService {
             if (((vehicleReas.getPermissionToEdit() || vehicleReas.getUsers().isEmpty()) && user.getRoles().contains(roleService.getAdminRole())) 
                 || (vehicleReas.getUsers().stream().map(User::getUsername).anyMatch(username -> username.equals(user.getUsername())))) {
 
-                Long coordId = vehicleReas.getCoordinates().getId();
-
+                vehicleReas.setPosition(new Position(vehicle.getPosition().getX(), vehicle.getPosition().getY()));
                 vehicleReas.setCoordinates(vehicle.getCoordinates());
                 vehicleRepository.save(vehicleReas);
-                
-                if (!coordId.equals(vehicleReas.getCoordinates().getId()) && 
-                    vehicleRepository.findAllByCoordinatesId(coordId).isEmpty()) {
-                    coordinatesRepositury.deleteById(coordId);
-                }
 
-                userActionService.logAction(Action.UPDATE_VEHICLE, token, Long.parseLong(reassignId));
+                vehicleChangeTracker.recordUpsert(vehicleReas.getId());
+                userActionService.logAction(Action.UPDATE_VEHICLE, token, reassignVehicleId);
             } else {
                 return new ResponseEntity<>(new AppError(
                     HttpStatus.BAD_REQUEST.value(), 
                     "Вы не можете переназначить на этот ТС, так как он не принадлежит вам"), 
                     HttpStatus.BAD_REQUEST);
             }
-        }else if (vehicleRepository.findAllByCoordinatesId(coordinatesId).size() == 1) {
-            vehicle.setCoordinates(null);
-            coordinatesRepositury.deleteById(coordinatesId);
         }
 
 
@@ -227,28 +423,49 @@ public class VehicleService {
         }
         
         vehicleRepository.delete(vehicle);
+        vehicleChangeTracker.recordDelete(id);
         
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     /**
-     * Создает новый автомобиль.
+     * Находит уже занятые названия.
+     * @param names Названия тс
+     * @return Названия из списка, под которыми уже есть тс
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<String> findExistingNames(Collection<String> names){
+        return names.isEmpty() ? List.of() : vehicleRepository.findExistingNames(names);
+    }
+
+    /**
+     * Создает кеш владельцев на время одной операции.
+     * @return Пустой кеш владельцев
+     */
+    public OwnerCache newOwnerCache(){
+        return new OwnerCache(userRepository);
+    }
+
+    /**
+     * Создает новый автомобиль. Уникальность названия проверяет индекс бд,
+     * при повторе наружу выходит DataIntegrityViolationException. Транзакция в READ COMMITTED,
+     * как требует {@link CoordinatesService}.
      * @param newVehicle Объект с данными для создания
      * @return ResponseEntity с результатом создания
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public ResponseEntity<?> createVehicle(RequestVehicle newVehicle){
+        return createVehicle(newVehicle, newOwnerCache());
+    }
 
-        if(vehicleRepository.existsByName(newVehicle.getName())){
-            return new ResponseEntity<>(
-                new AppError(
-                    HttpStatus.BAD_REQUEST.value(), 
-                    "Введена машина с повторяющимся названием"
-                ), 
-                HttpStatus.BAD_REQUEST
-            );
-        }
-        
+    /**
+     * Создает новый автомобиль, находя владельцев через общий кеш.
+     * @param newVehicle Объект с данными для создания
+     * @param ownerCache Кеш владельцев текущей операции
+     * @return ResponseEntity с результатом создания
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ResponseEntity<?> createVehicle(RequestVehicle newVehicle, OwnerCache ownerCache){
 
         String constraintsError = checkNewConstraints(newVehicle);
         if(constraintsError != null) {
@@ -265,15 +482,7 @@ public class VehicleService {
 
         vehicle.setName(newVehicle.getName());
 
-        if(coordinatesRepositury.findByXAndY(newVehicle.getX(), newVehicle.getY()).isPresent()){
-            vehicle.setCoordinates(coordinatesRepositury.findByXAndY(newVehicle.getX(), newVehicle.getY()).get());
-        }else{
-            Coordinates coordinates = new Coordinates();
-            coordinates.setX(newVehicle.getX());
-            coordinates.setY(newVehicle.getY());
-            coordinatesRepositury.saveAndFlush(coordinates);
-            vehicle.setCoordinates(coordinates);
-        }
+        coordinatesService.place(vehicle, newVehicle.getX(), newVehicle.getY());
 
         LocalDateTime localDateTime = LocalDateTime.now();
         vehicle.setCreationDate(localDateTime);
@@ -290,15 +499,7 @@ public class VehicleService {
         vehicle.setFuelType(fuelType);
 
 
-        List<String> owners = newVehicle.getNamesOfOwners();
-        Set<User> uniqueOwners = new HashSet<>();
-
-        for (String owner : owners) {
-            Optional<User> userOpt = userRepository.findByUsername(owner);
-            userOpt.ifPresent(uniqueOwners::add);
-        }
-
-        List<User> convertOwners = new ArrayList<>(uniqueOwners);
+        List<User> convertOwners = ownerCache.resolve(newVehicle.getNamesOfOwners());
         if(convertOwners.size() > 3){
             return new ResponseEntity<>(
                 new AppError(
@@ -317,6 +518,7 @@ public class VehicleService {
         }
         
         vehicleRepository.save(vehicle);
+        vehicleChangeTracker.recordUpsert(vehicle.getId());
 
         Hibernate.initialize(vehicle.getUsers());
 
@@ -0,0 +1,72 @@
+package com.alwx.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.alwx.backend.dtos.SimpleInfoAboutCars;
+import com.alwx.backend.dtos.VehicleChanges;
+import com.alwx.backend.dtos.VehicleRow;
+import com.alwx.backend.dtos.VehicleTableDelta;
+import com.alwx.backend.repositories.VehicleRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Рассылает изменения таблицы тс в /topic/tableUpdates после коммита.
+ * Сообщения отправляются из одного фонового потока, чтобы не задерживать
+ * поток запроса и сохранять порядок версий.
+ */
+@Component
+@RequiredArgsConstructor
+public class VehicleTableBroadcaster {
+    private final SimpMessagingTemplate messagingTemplate;
+    private final VehicleRepository vehicleRepository;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Максимум строк и id удалённых тс в одном сообщении, при превышении клиенту отправляется флаг полной перезагрузки.
+     */
+    @Value("${vehicles.delta.max-rows:1000}")
+    private int maxRows;
+
+    /**
+     * Ставит в очередь рассылку изменений закоммиченной транзакции.
+     * @param changes Изменения, сделанные в транзакции
+     */
+    @EventListener
+    public void onVehicleChanges(VehicleChanges changes) {
+        executor.execute(() -> send(changes));
+    }
+
+    private void send(VehicleChanges changes) {
+        boolean fullReload = changes.getUpserted().size() + changes.getDeleted().size() > maxRows;
+        List<SimpleInfoAboutCars> upserted = new ArrayList<>();
+        if (!fullReload && !changes.getUpserted().isEmpty()) {
+            for (VehicleRow row : vehicleRepository.findRowsByIds(changes.getUpserted())) {
+                upserted.add(new SimpleInfoAboutCars(row));
+            }
+        }
+
+        messagingTemplate.convertAndSend("/topic/tableUpdates", new VehicleTableDelta(
+            "Данные в таблице обновлены",
+            changes.getVersion(),
+            changes.getPreviousVersion(),
+            fullReload,
+            upserted,
+            fullReload ? new ArrayList<>() : new ArrayList<>(changes.getDeleted())
+        ));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
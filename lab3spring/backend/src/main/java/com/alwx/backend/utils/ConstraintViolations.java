@@ -0,0 +1,61 @@
+package com.alwx.backend.utils;
+
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+/**
+ * Разбор нарушений ограничений бд, пришедших из Hibernate или JdbcTemplate.
+ */
+public final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    /**
+     * Проверяет, вызвано ли исключение нарушением заданного ограничения.
+     * @param e Исключение, например DataIntegrityViolationException
+     * @param constraintName Имя ограничения
+     * @return true, если в цепочке причин есть нарушение этого ограничения
+     */
+    public static boolean isViolationOf(Throwable e, String constraintName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && constraintName.equalsIgnoreCase(violation.getConstraintName())) {
+                return true;
+            }
+            if (cause instanceof SQLException && cause.getMessage() != null
+                    && cause.getMessage().contains("\"" + constraintName + "\"")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Значение ключа из описания нарушения внешнего ключа postgres: (column)=(value).
+     * @param e Исключение, например DataIntegrityViolationException
+     * @param column Столбец внешнего ключа
+     * @return Значение ключа или null, если описание его не содержит
+     */
+    public static Long referencedId(Throwable e, String column) {
+        Pattern key = Pattern.compile("\\(" + Pattern.quote(column) + "\\)=\\((\\d+)\\)");
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && cause.getMessage() != null) {
+                Matcher matcher = key.matcher(cause.getMessage());
+                if (matcher.find()) {
+                    return Long.valueOf(matcher.group(1));
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return null;
+    }
+}
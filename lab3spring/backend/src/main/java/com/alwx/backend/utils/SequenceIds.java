@@ -0,0 +1,48 @@
+package com.alwx.backend.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Выдача id из последовательностей сущностей для вставок через JDBC в обход Hibernate.
+ * Последовательности шагают на {@link #ALLOCATION_SIZE}, Hibernate использует оптимизатор pooled-lo
+ * (hibernate.id.optimizer.pooled.preferred), поэтому значение последовательности S резервирует
+ * id с S по S + ALLOCATION_SIZE - 1 - одинаково для Hibernate и для этого класса, блоки не пересекаются.
+ */
+@Component
+@RequiredArgsConstructor
+public class SequenceIds {
+    /**
+     * Шаг последовательностей и размер блока id.
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Резервирует id для вставки, одним запросом на все нужные блоки.
+     * @param sequence Имя последовательности, например Vehicle.SEQUENCE
+     * @param count Количество id
+     * @return Возрастающие id
+     */
+    public List<Long> next(String sequence, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        if (count <= 0) {
+            return ids;
+        }
+        int blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        List<Long> starts = jdbcTemplate.queryForList(
+            "select nextval(cast(? as regclass)) from generate_series(1, ?)", Long.class, sequence, blocks);
+        for (Long start : starts) {
+            for (long id = start; id < start + ALLOCATION_SIZE && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,111 @@
+package com.alwx.backend.utils;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.alwx.backend.utils.locks.StaleSnapshotLockException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Повторяет транзакцию, откатившуюся из-за конфликта с конкурентной транзакцией
+ * (ошибка сериализации, взаимоблокировка, устаревшая версия строки, блокировка, полученная
+ * после устаревшего снимка). Таймаут ожидания блокировки не повторяется: ресурс занят надолго,
+ * и новая попытка только удержит запрос ещё на один таймаут.
+ * Между попытками выдерживается экспоненциальная пауза со случайным разбросом.
+ * Вызывается снаружи транзакции: внутри уже открытой транзакции действие выполняется один раз,
+ * потому что повтор возможен только для транзакции целиком.
+ */
+@Component
+public class TransactionRetrier {
+    /**
+     * Метрика количества повторов, тег operation.
+     */
+    public static final String RETRY_METRIC = "transaction.retries";
+
+    /**
+     * Метрика операций, не выполненных за все попытки, тег operation.
+     */
+    public static final String EXHAUSTED_METRIC = "transaction.retries.exhausted";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    public TransactionRetrier(
+            MeterRegistry meterRegistry,
+            @Value("${transactions.retry.max-attempts:3}") int maxAttempts,
+            @Value("${transactions.retry.base-backoff-ms:20}") long baseBackoffMs,
+            @Value("${transactions.retry.max-backoff-ms:500}") long maxBackoffMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Выполняет транзакционное действие с повторами при конфликтах.
+     * @param operation Имя операции для метрик
+     * @param action Вызов транзакционного метода сервиса
+     * @return Результат действия
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter(EXHAUSTED_METRIC, "operation", operation).increment();
+                    throw e;
+                }
+                meterRegistry.counter(RETRY_METRIC, "operation", operation).increment();
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, вызвано ли исключение конфликтом транзакций, после которого имеет смысл повторить.
+     * @param e Исключение
+     * @return true для ошибок сериализации, взаимоблокировок, конфликтов версий
+     * и {@link StaleSnapshotLockException}
+     */
+    public static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof StaleSnapshotLockException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException
+                    && ("40001".equals(sqlException.getSQLState()) || "40P01".equals(sqlException.getSQLState()))) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void backoff(int attempt, RuntimeException failure) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+}
@@ -21,7 +21,9 @@ public enum UserError {
     ENGINE_FUEL("Слишко маленький расход топлива при заданном объёме ваш минимальный расход: "),
     ENGINE_BICYCLE("Минимальная мощность двигателя велосипеда должна быть 350 Вт"),
     ENGINE_BOAT("Минимальная мощность двигателя лодки должна быть 2.5 л/с"),
-    ENGINE_PLANE("Минимальная мощность двигателя самолёта должна быть 100 л/с");
+    ENGINE_PLANE("Минимальная мощность двигателя самолёта должна быть 100 л/с"),
+    VEHICLE_NAME_EXISTS("Машина с таким именем уже существует."),
+    COORDINATES_DELETED("Координаты были удалены другим пользователем. Повторите попытку.");
 
     private final String message;
 
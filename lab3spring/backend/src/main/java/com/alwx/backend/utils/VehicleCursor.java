@@ -0,0 +1,77 @@
+package com.alwx.backend.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.alwx.backend.dtos.SimpleInfoAboutCars;
+import com.alwx.backend.models.enums.VehicleSortField;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Курсор keyset-пагинации таблицы тс. Хранит поле сортировки и значения
+ * (поле, id) последней выданной строки; клиенту передаётся в виде непрозрачной строки.
+ */
+@Getter
+@AllArgsConstructor
+public class VehicleCursor {
+    private final VehicleSortField sortField;
+    private final Long id;
+    private final String name;
+    private final Double enginePower;
+
+    /**
+     * Курсор, указывающий на начало выборки (значения меньше любых допустимых).
+     * @param sortField Поле сортировки
+     * @return Начальный курсор
+     */
+    public static VehicleCursor start(VehicleSortField sortField) {
+        return new VehicleCursor(sortField, 0L, "", -Double.MAX_VALUE);
+    }
+
+    /**
+     * Курсор, указывающий на строку, следующую за переданной.
+     * @param sortField Поле сортировки
+     * @param last Последняя строка страницы
+     * @return Курсор
+     */
+    public static VehicleCursor after(VehicleSortField sortField, SimpleInfoAboutCars last) {
+        return new VehicleCursor(sortField, last.getId(), last.getName(), last.getEnginePower());
+    }
+
+    /**
+     * Кодирует курсор в строку для передачи клиенту.
+     * @return Закодированный курсор
+     */
+    public String encode() {
+        String value = switch (sortField) {
+            case ID -> "";
+            case NAME -> name;
+            case ENGINE_POWER -> Double.toString(enginePower);
+        };
+        String raw = sortField.name() + ":" + id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор, полученный от клиента.
+     * @param encoded Закодированный курсор
+     * @return Курсор
+     * @throws IllegalArgumentException Если строка не является корректным курсором
+     */
+    public static VehicleCursor decode(String encoded) {
+        String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        String[] parts = raw.split(":", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Некорректный курсор");
+        }
+        VehicleSortField sortField = VehicleSortField.valueOf(parts[0]);
+        Long id = Long.parseLong(parts[1]);
+        return switch (sortField) {
+            case ID -> new VehicleCursor(sortField, id, "", -Double.MAX_VALUE);
+            case NAME -> new VehicleCursor(sortField, id, parts[2], -Double.MAX_VALUE);
+            case ENGINE_POWER -> new VehicleCursor(sortField, id, "", Double.parseDouble(parts[2]));
+        };
+    }
+}
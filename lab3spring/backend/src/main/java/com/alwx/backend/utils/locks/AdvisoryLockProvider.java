@@ -0,0 +1,94 @@
+package com.alwx.backend.utils.locks;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Блокировки по ключам через транзакционные advisory-блокировки postgres, общие для всех
+ * экземпляров сервера (vehicles.locks.mode=advisory). Ключи хешируются в 64-битные числа,
+ * блокировки берутся по возрастанию хеша через pg_try_advisory_xact_lock с повтором до таймаута
+ * и отпускаются самой бд при коммите или откате.
+ * Снимок транзакции REPEATABLE_READ фиксируется уже на первой попытке, поэтому если блокировку
+ * пришлось ждать, такая транзакция могла не увидеть изменений предыдущего владельца и прерывается
+ * с {@link StaleSnapshotLockException}, после которой её можно повторить.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicles.locks.mode", havingValue = "advisory")
+public class AdvisoryLockProvider implements KeyLockProvider {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMs;
+    private final long pollMs;
+
+    public AdvisoryLockProvider(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${vehicles.locks.timeout-ms:30000}") long timeoutMs,
+            @Value("${vehicles.locks.advisory-poll-ms:20}") long pollMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+        this.pollMs = pollMs;
+    }
+
+    @Override
+    public void lockForTransaction(Collection<String> keys) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Блокировка ключей возможна только внутри транзакции");
+        }
+        long[] hashes = keys.stream().mapToLong(AdvisoryLockProvider::hash).distinct().sorted().toArray();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        boolean waited = false;
+        for (long hash : hashes) {
+            while (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, hash))) {
+                waited = true;
+                if (System.currentTimeMillis() >= deadline) {
+                    sample.stop(meterRegistry.timer(WAIT_METRIC, "mode", "advisory", "outcome", "timeout"));
+                    throw new CannotAcquireLockException("Не удалось дождаться блокировки ресурса");
+                }
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CannotAcquireLockException("Ожидание блокировки прервано", e);
+                }
+            }
+        }
+        sample.stop(meterRegistry.timer(WAIT_METRIC, "mode", "advisory", "outcome", "acquired"));
+
+        Integer isolation = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        if (waited && isolation != null && isolation >= Connection.TRANSACTION_REPEATABLE_READ) {
+            throw new StaleSnapshotLockException("Ресурс изменялся другой транзакцией во время ожидания блокировки");
+        }
+    }
+
+    /**
+     * 64-битный хеш FNV-1a ключа.
+     * @param key Ключ ресурса
+     * @return Ключ advisory-блокировки
+     */
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,33 @@
+package com.alwx.backend.utils.locks;
+
+import java.util.Collection;
+
+/**
+ * Блокировки по ключам спорных ресурсов (id тс для правок).
+ * Ключи блокируются до завершения текущей транзакции, поэтому следующая транзакция
+ * с тем же ключом видит уже закоммиченные изменения.
+ */
+public interface KeyLockProvider {
+    /**
+     * Метрика времени ожидания блокировок, теги mode (local/advisory) и outcome (acquired/timeout).
+     */
+    String WAIT_METRIC = "vehicles.lock.wait";
+
+    /**
+     * Блокирует ключи до конца текущей транзакции. Ключи блокируются в детерминированном
+     * порядке, поэтому транзакции с пересекающимися наборами ключей не взаимоблокируются.
+     * Должен вызываться первым действием транзакции, до чтения данных.
+     * @param keys Ключи ресурсов
+     * @throws org.springframework.dao.CannotAcquireLockException если блокировку не удалось получить за отведённое время
+     */
+    void lockForTransaction(Collection<String> keys);
+
+    /**
+     * Ключ тс по id.
+     * @param id ID тс
+     * @return Ключ блокировки
+     */
+    static String vehicleId(Long id) {
+        return "vehicle-id:" + id;
+    }
+}
@@ -0,0 +1,13 @@
+package com.alwx.backend.utils.locks;
+
+import org.springframework.dao.CannotAcquireLockException;
+
+/**
+ * Блокировка получена после ожидания, но снимок транзакции REPEATABLE_READ взят раньше
+ * и может не содержать изменений предыдущего владельца. Транзакцию нужно повторить целиком.
+ */
+public class StaleSnapshotLockException extends CannotAcquireLockException {
+    public StaleSnapshotLockException(String message) {
+        super(message);
+    }
+}
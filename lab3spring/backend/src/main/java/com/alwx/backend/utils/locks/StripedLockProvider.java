@@ -0,0 +1,108 @@
+package com.alwx.backend.utils.locks;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Блокировки по ключам внутри одного экземпляра сервера. Ключи хешируются на фиксированный
+ * набор ReentrantLock (полос), несколько ключей блокируются по возрастанию номера полосы.
+ * Используется по умолчанию (vehicles.locks.mode=local), подходит только для одного экземпляра сервера.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicles.locks.mode", havingValue = "local", matchIfMissing = true)
+public class StripedLockProvider implements KeyLockProvider {
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+    private final MeterRegistry meterRegistry;
+
+    public StripedLockProvider(
+            @Value("${vehicles.locks.stripes:1024}") int stripes,
+            @Value("${vehicles.locks.timeout-ms:30000}") long timeoutMs,
+            MeterRegistry meterRegistry) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void lockForTransaction(Collection<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Блокировка ключей возможна только внутри транзакции");
+        }
+        int[] indexes = stripesOf(keys);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            lock(indexes);
+        } catch (CannotAcquireLockException e) {
+            sample.stop(meterRegistry.timer(WAIT_METRIC, "mode", "local", "outcome", "timeout"));
+            throw e;
+        }
+        sample.stop(meterRegistry.timer(WAIT_METRIC, "mode", "local", "outcome", "acquired"));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(indexes);
+            }
+        });
+    }
+
+    /**
+     * Номера полос для ключей без повторов, по возрастанию.
+     * @param keys Ключи ресурсов
+     * @return Номера полос
+     */
+    public int[] stripesOf(Collection<String> keys) {
+        return keys.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+    }
+
+    /**
+     * Блокирует полосы по порядку. Если какую-то полосу не удалось получить за отведённое время,
+     * уже взятые отпускаются.
+     * @param indexes Номера полос по возрастанию
+     */
+    public void lock(int[] indexes) {
+        for (int i = 0; i < indexes.length; i++) {
+            boolean acquired;
+            try {
+                acquired = stripes[indexes[i]].tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                unlock(Arrays.copyOf(indexes, i));
+                throw new CannotAcquireLockException("Не удалось дождаться блокировки ресурса");
+            }
+        }
+    }
+
+    /**
+     * Отпускает полосы в обратном порядке.
+     * @param indexes Номера полос, взятые через {@link #lock(int[])}
+     */
+    public void unlock(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private int stripeOf(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
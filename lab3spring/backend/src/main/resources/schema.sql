@@ -0,0 +1,9 @@
+-- Выполняется после создания схемы Hibernate (spring.jpa.defer-datasource-initialization).
+-- Здесь индексы, которые нельзя описать через @Index, и переносы данных.
+
+-- Поиск тс по началу имени без учёта регистра: lower(name) like 'префикс%'
+create index if not exists idx_vehicle_name_lower_prefix on vehicle (lower(name) text_pattern_ops);
+
+-- Перенос координат в строку тс: x, y заполняются из общей таблицы coordinates у тс,
+-- созданных до появления этих колонок. После переноса можно включить vehicles.coordinates.mode=embedded.
+update vehicle v set x = c.x, y = c.y from coordinates c where c.id = v.coordinates_id and v.x is null;
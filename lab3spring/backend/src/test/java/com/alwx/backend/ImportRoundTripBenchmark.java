@@ -0,0 +1,102 @@
+package com.alwx.backend;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alwx.backend.dtos.RequestVehicle;
+import com.alwx.backend.service.OwnerCache;
+import com.alwx.backend.service.VehicleService;
+
+/**
+ * Бенчмарк обращений к бд при импорте: создаёт 10 000 тс так же, как импорт файла
+ * (одна транзакция, createVehicle на строку), считает выполненные jdbc-запросы и откатывает транзакцию.
+ * Обращением считается каждый execute*, executeBatch - одно обращение на пакет.
+ * Не входит в тесты, запускается вручную с настройками бд в окружении (POSTGRES_*):
+ * java -cp target/test-classes:target/classes:... com.alwx.backend.ImportRoundTripBenchmark
+ * Прогон с --spring.jpa.properties.hibernate.jdbc.batch_size=1 сравнивает пакетную вставку
+ * с поштучной при тех же id из последовательности; это не базовая линия до перехода
+ * с IDENTITY - для неё нужно запускать бенчмарк на коде с прежним маппингом Vehicle.
+ * Результаты прогонов здесь не фиксируются.
+ */
+public class ImportRoundTripBenchmark {
+	private static final int ROWS = 10_000;
+
+	public static void main(String[] args) {
+		LongAdder roundTrips = new LongAdder();
+		SpringApplication application = new SpringApplication(BackendApplication.class);
+		application.setDefaultProperties(Map.of(
+			"server.port", "0",
+			"spring.jpa.show-sql", "false",
+			"vehicles.coordinates.collect-interval-ms", "3600000"));
+		application.addInitializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource dataSource ? counting(dataSource, DataSource.class, roundTrips) : bean;
+			}
+		}));
+
+		try (ConfigurableApplicationContext context = application.run(args)) {
+			VehicleService vehicleService = context.getBean(VehicleService.class);
+			TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+
+			roundTrips.reset();
+			long start = System.nanoTime();
+			transactionTemplate.executeWithoutResult(status -> {
+				OwnerCache ownerCache = vehicleService.newOwnerCache();
+				for (int i = 0; i < ROWS; i++) {
+					vehicleService.createVehicle(vehicle(i), ownerCache);
+				}
+				status.flush();
+				status.setRollbackOnly();
+			});
+			long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+			System.out.printf("%-10s %15s %10s%n", "rows", "round trips", "ms");
+			System.out.printf("%-10d %15d %10d%n", ROWS, roundTrips.sum(), elapsedMs);
+		}
+	}
+
+	private static RequestVehicle vehicle(int i) {
+		return new RequestVehicle("benchmark_" + i, (long) (i % 100), (double) (i / 100 % 10), "BOAT",
+			10.0, 1, 1L, 1.0, 10f, "DIESEL", List.of(), true);
+	}
+
+	/**
+	 * Оборачивает DataSource, Connection и Statement, считая вызовы execute*.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T counting(T target, Class<T> type, LongAdder roundTrips) {
+		InvocationHandler handler = (proxy, method, methodArgs) -> {
+			Object result;
+			try {
+				result = method.invoke(target, methodArgs);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof Statement && method.getReturnType().isInterface()) {
+				return counting(result, (Class<Object>) method.getReturnType(), roundTrips);
+			}
+			if (result instanceof Connection connection) {
+				return counting(connection, Connection.class, roundTrips);
+			}
+			if (target instanceof Statement && method.getName().startsWith("execute")) {
+				roundTrips.increment();
+			}
+			return result;
+		};
+		return (T) Proxy.newProxyInstance(ImportRoundTripBenchmark.class.getClassLoader(), new Class<?>[] {type}, handler);
+	}
+}
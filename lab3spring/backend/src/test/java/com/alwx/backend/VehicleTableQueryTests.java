@@ -0,0 +1,109 @@
+package com.alwx.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.alwx.backend.dtos.SimpleInfoAboutCars;
+import com.alwx.backend.models.Coordinates;
+import com.alwx.backend.models.Position;
+import com.alwx.backend.models.User;
+import com.alwx.backend.models.Vehicle;
+import com.alwx.backend.models.enums.FuelType;
+import com.alwx.backend.models.enums.VehicleType;
+import com.alwx.backend.repositories.CoordinatesRepositury;
+import com.alwx.backend.repositories.UserRepository;
+import com.alwx.backend.repositories.VehicleRepository;
+import com.alwx.backend.service.VehicleService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Проверяет, что чтение таблицы тс не скатывается в N+1 по владельцам.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class VehicleTableQueryTests {
+
+	@Autowired
+	private VehicleService vehicleService;
+
+	@Autowired
+	private VehicleRepository vehicleRepository;
+
+	@Autowired
+	private CoordinatesRepositury coordinatesRepositury;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void tableIsReadWithOneStatement() {
+		createVehicles(20);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<SimpleInfoAboutCars> vehicles = vehicleService.getAllVehicle();
+
+		assertEquals(20, vehicles.size());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void pageIsReadWithOneStatement() {
+		createVehicles(20);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		vehicleService.getVehiclePage("name", null, 10);
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	private void createVehicles(int count) {
+		List<User> owners = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			User user = new User();
+			user.setUsername("owner_test_" + i);
+			user.setPassword("password");
+			user.setRoles(new ArrayList<>());
+			owners.add(userRepository.save(user));
+		}
+
+		Coordinates coordinates = new Coordinates();
+		coordinates.setX(1L);
+		coordinates.setY(1.0);
+		coordinatesRepositury.save(coordinates);
+
+		for (int i = 0; i < count; i++) {
+			Vehicle vehicle = new Vehicle();
+			vehicle.setName("vehicle_test_" + i);
+			vehicle.setCoordinates(coordinates);
+			vehicle.setPosition(new Position(coordinates.getX(), coordinates.getY()));
+			vehicle.setCreationDate(LocalDateTime.now());
+			vehicle.setType(VehicleType.BOAT);
+			vehicle.setEnginePower(10.0);
+			vehicle.setNumberOfWheels(1);
+			vehicle.setCapacity(1L);
+			vehicle.setDistanceTravelled(1.0);
+			vehicle.setFuelConsumption(10f);
+			vehicle.setFuelType(FuelType.DIESEL);
+			vehicle.setUsers(new ArrayList<>(owners));
+			vehicle.setPermissionToEdit(true);
+			vehicleRepository.save(vehicle);
+		}
+		vehicleRepository.flush();
+	}
+}
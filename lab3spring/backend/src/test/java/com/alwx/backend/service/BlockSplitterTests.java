@@ -0,0 +1,56 @@
+package com.alwx.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Проверяет нарезку файла импорта на блоки по границам записей.
+ */
+class BlockSplitterTests {
+
+	@Test
+	void blocksEndOnRecordBoundaries() throws IOException {
+		assertEquals(List.of("a,1\nb,2\n", "c,3\nd"), split("a,1\nb,2\nc,3\nd", 8));
+	}
+
+	@Test
+	void newlineInsideQuotesIsNotBoundary() throws IOException {
+		assertEquals(List.of("a\n", "\"b\nc\"\n"), split("a\n\"b\nc\"\n", 4));
+		assertEquals(List.of("\"x\"\"\ny\"\n", "z\n"), split("\"x\"\"\ny\"\nz\n", 8));
+	}
+
+	@Test
+	void blockGrowsUntilRecordEnds() throws IOException {
+		assertEquals(List.of("abcdefghij\n", "k\n"), split("abcdefghij\nk\n", 4));
+	}
+
+	@Test
+	void crlfStaysInsideBlock() throws IOException {
+		assertEquals(List.of("a,b\r\n", "c,d\r\n"), split("a,b\r\nc,d\r\n", 4));
+	}
+
+	@Test
+	void unterminatedQuoteFailsAfterBlockLimit() {
+		String input = "\"" + "x\n".repeat(100);
+		assertThrows(IOException.class, () -> split(input, 4));
+	}
+
+	private static List<String> split(String input, int blockBytes) throws IOException {
+		VehicleCsvReader.BlockSplitter splitter = new VehicleCsvReader.BlockSplitter(
+			new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), blockBytes);
+		List<String> blocks = new ArrayList<>();
+		byte[] block;
+		while ((block = splitter.next()) != null) {
+			blocks.add(new String(block, StandardCharsets.UTF_8));
+		}
+		return blocks;
+	}
+}
@@ -0,0 +1,105 @@
+package com.alwx.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Проверяет порядок выдачи импортов планировщиком. Единственный исполнитель занят импортом-заглушкой,
+ * пока очередь наполняется, поэтому порядок выполнения совпадает с порядком выдачи из очереди.
+ */
+class ImportSchedulerTests {
+	private static final long SMALL = 1;
+	private static final long LARGE = 1000;
+
+	private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ImportScheduler scheduler;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		scheduler.shutdown();
+	}
+
+	@Test
+	void usersAreServedInTurn() throws InterruptedException {
+		scheduler = scheduler(100, 4);
+		scheduler.submit("a", LARGE, this::block);
+		CountDownLatch done = new CountDownLatch(5);
+		submit("a", "a1", SMALL, done);
+		submit("a", "a2", SMALL, done);
+		submit("a", "a3", SMALL, done);
+		submit("b", "b1", SMALL, done);
+		submit("c", "c1", SMALL, done);
+
+		release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of("a1", "b1", "c1", "a2", "a3"), order);
+	}
+
+	@Test
+	void largeImportRunsAfterSmallBurst() throws InterruptedException {
+		scheduler = scheduler(100, 2);
+		scheduler.submit("a", LARGE, this::block);
+		CountDownLatch done = new CountDownLatch(4);
+		submit("b", "large", LARGE, done);
+		submit("c", "s1", SMALL, done);
+		submit("c", "s2", SMALL, done);
+		submit("c", "s3", SMALL, done);
+
+		release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of("s1", "s2", "large", "s3"), order);
+	}
+
+	@Test
+	void fullQueueRejectsImport() throws InterruptedException {
+		scheduler = scheduler(2, 4);
+		scheduler.submit("a", LARGE, this::block);
+		CountDownLatch done = new CountDownLatch(2);
+
+		assertTrue(submit("b", "b1", SMALL, done));
+		assertTrue(submit("c", "c1", LARGE, done));
+		assertTrue(scheduler.isFull());
+		assertFalse(submit("d", "d1", SMALL, done));
+
+		release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of("b1", "c1"), order);
+		assertFalse(scheduler.isFull());
+	}
+
+	private static ImportScheduler scheduler(int capacity, int smallBurst) {
+		return new ImportScheduler(new SimpleMeterRegistry(), 1, capacity, 100, smallBurst);
+	}
+
+	private boolean submit(String username, String name, long size, CountDownLatch done) {
+		return scheduler.submit(username, size, () -> {
+			order.add(name);
+			done.countDown();
+		});
+	}
+
+	private void block() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.alwx.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.alwx.backend.controllers.exceptionHandlers.exceptions.ImportValidationException;
+import com.alwx.backend.dtos.ImportRow;
+
+import jakarta.validation.Validator;
+
+/**
+ * Проверяет порядок строк и ошибок при параллельном разборе csv импорта.
+ */
+class VehicleCsvReaderTests {
+	private static final int BLOCK_BYTES = 64;
+
+	private static final String HEADER = "название,x,y,тип,мощность,колеса,вместимость,путь,расход,топливо,создатели,редактирование\n";
+
+	private final VehicleCsvReader reader = new VehicleCsvReader(mock(Validator.class), mock(VehicleService.class), 2, BLOCK_BYTES);
+
+	@AfterEach
+	void tearDown() {
+		reader.shutdown();
+	}
+
+	@Test
+	void recordsComeInFileOrder() {
+		List<ImportRow> rows = readAll(file(10, ""), 3);
+
+		assertEquals(10, rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertEquals(i + 1, rows.get(i).getNumber());
+			assertEquals("car_" + (i + 1), rows.get(i).getVehicle().getName());
+		}
+	}
+
+	@Test
+	void unsplittableTailIsReportedAfterEarlierRecords() {
+		String tail = "\"незакрытая кавычка" + "x\n".repeat(BLOCK_BYTES * 10);
+		List<ImportRow> rows = new ArrayList<>();
+
+		ImportValidationException error = assertThrows(ImportValidationException.class, () -> readInto(file(10, tail), 3, rows));
+
+		assertEquals(10, rows.size());
+		assertEquals("Ошибка в структуре csv, запись 11", error.getMessage());
+	}
+
+	private List<ImportRow> readAll(String file, int chunkSize) {
+		List<ImportRow> rows = new ArrayList<>();
+		readInto(file, chunkSize, rows);
+		return rows;
+	}
+
+	private void readInto(String file, int chunkSize, List<ImportRow> rows) {
+		try (VehicleCsvReader.Chunks chunks = reader.open(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)), 0, chunkSize)) {
+			List<ImportRow> chunk;
+			while ((chunk = chunks.next()) != null) {
+				rows.addAll(chunk);
+			}
+		}
+	}
+
+	private static String file(int records, String tail) {
+		StringBuilder file = new StringBuilder(HEADER);
+		for (int i = 1; i <= records; i++) {
+			file.append("car_").append(i).append(",1,1.0,BOAT,10,1,1,1,10,DIESEL,owner,true\n");
+		}
+		return file.append(tail).toString();
+	}
+}
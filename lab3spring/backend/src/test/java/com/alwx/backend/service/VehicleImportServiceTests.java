@@ -0,0 +1,119 @@
+package com.alwx.backend.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.alwx.backend.dtos.ImportRow;
+import com.alwx.backend.dtos.RequestVehicle;
+import com.alwx.backend.models.ImportRequest;
+import com.alwx.backend.models.User;
+import com.alwx.backend.models.enums.StatusType;
+import com.alwx.backend.utils.TransactionRetrier;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Проверяет, что импорт файла одной транзакцией не обновляет строку заявки внутри своей транзакции:
+ * ход импорта пишется в неё отдельными транзакциями, и обновление из транзакции импорта
+ * конфликтовало бы с ними.
+ */
+class VehicleImportServiceTests {
+	private static final Long REQUEST_ID = 7L;
+
+	private final VehicleService vehicleService = mock(VehicleService.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+	private final ImportRequestService importRequestService = mock(ImportRequestService.class);
+	private final VehicleCsvReader vehicleCsvReader = mock(VehicleCsvReader.class);
+	private final ImportScheduler importScheduler = mock(ImportScheduler.class);
+	private final TransactionStatus transaction = mock(TransactionStatus.class);
+
+	private VehicleImportService importService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		importService = new VehicleImportService(vehicleService, transactionManager, importRequestService,
+			vehicleCsvReader, mock(TransactionRetrier.class), mock(EntityManager.class), mock(SimpMessagingTemplate.class),
+			importScheduler, mock(VehicleCopyLoader.class), mock(CoordinatesService.class));
+		ReflectionTestUtils.setField(importService, "atomicity", "file");
+		ReflectionTestUtils.setField(importService, "engine", "jpa");
+		ReflectionTestUtils.setField(importService, "chunkSize", 2);
+		ReflectionTestUtils.setField(importService, "progressIntervalMs", 0L);
+
+		ImportRequest request = request();
+		when(importRequestService.queue(anyString(), anyString(), anyLong())).thenReturn(request);
+		when(importRequestService.start(REQUEST_ID)).thenReturn(request);
+		when(importRequestService.openFile(anyString())).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(importScheduler.submit(anyString(), anyLong(), any())).thenReturn(true);
+
+		VehicleCsvReader.Chunks chunks = mock(VehicleCsvReader.Chunks.class);
+		when(chunks.next()).thenReturn(List.of(row(1), row(2)), List.of(row(3)), null);
+		when(vehicleCsvReader.open(any(), eq(0L), eq(2))).thenReturn(chunks);
+
+		when(transactionManager.getTransaction(any())).thenReturn(transaction);
+		when(transaction.isCompleted()).thenReturn(true);
+		when(vehicleService.newOwnerCache()).thenReturn(mock(OwnerCache.class));
+		doReturn(ResponseEntity.ok().build()).when(vehicleService).createVehicle(any(RequestVehicle.class), any(OwnerCache.class));
+	}
+
+	@Test
+	void wholeFileCountIsWrittenAfterCommit() {
+		importService.processImport(new MockMultipartFile("file", "vehicles.csv", "text/csv", new byte[] {1}), "Bearer token");
+		runSubmittedImport();
+
+		InOrder order = inOrder(importRequestService, transactionManager);
+		order.verify(importRequestService, atLeastOnce()).progress(eq(REQUEST_ID), anyLong(), anyLong());
+		order.verify(transactionManager).commit(transaction);
+		order.verify(importRequestService).finish(eq(REQUEST_ID), eq(StatusType.DONE), eq(3L), eq(3L), anyLong(), isNull());
+		verify(importRequestService, never()).advance(anyLong(), anyLong());
+	}
+
+	private void runSubmittedImport() {
+		ArgumentCaptor<Runnable> action = ArgumentCaptor.forClass(Runnable.class);
+		verify(importScheduler).submit(anyString(), anyLong(), action.capture());
+		action.getValue().run();
+	}
+
+	private static ImportRequest request() {
+		User user = new User();
+		user.setUsername("importer");
+		ImportRequest request = new ImportRequest();
+		request.setId(REQUEST_ID);
+		request.setUser(user);
+		request.setUid("vehicles.csv");
+		request.setStatus(StatusType.QUEUED);
+		request.setCount(0L);
+		request.setRowsProcessed(0L);
+		request.setBytesRead(0L);
+		request.setBytesTotal(1L);
+		return request;
+	}
+
+	private static ImportRow row(int number) {
+		return new ImportRow(number, new RequestVehicle("import_test_" + number, 1L, 1.0, "BOAT",
+			10.0, 1, 1L, 1.0, 10f, "DIESEL", List.of(), true));
+	}
+}
@@ -0,0 +1,78 @@
+package com.alwx.backend.utils.locks;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Бенчмарк конкуренции за блокировки: пропускная способность одной глобальной блокировки
+ * (как у прежнего LockProvider) и полосатых блокировок при росте числа потоков.
+ * Контрольная сумма работы в критической секции выводится вместе с результатом, чтобы JIT не выбросил эту работу.
+ * Не входит в тесты, запускается вручную:
+ * java -cp target/test-classes:target/classes:... com.alwx.backend.utils.locks.StripedLockProviderBenchmark
+ */
+public class StripedLockProviderBenchmark {
+	private static final int KEYS = 10_000;
+	private static final long WARMUP_MS = 500;
+	private static final long MEASURE_MS = 2_000;
+	private static final int CRITICAL_SECTION_WORK = 200;
+
+	public static void main(String[] args) throws InterruptedException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%-8s %-10s %15s %20s%n", "threads", "stripes", "ops/s", "checksum");
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			for (int stripes : new int[] {1, 1024}) {
+				Result result = run(new StripedLockProvider(stripes, 30_000, new SimpleMeterRegistry()), threads);
+				System.out.printf("%-8d %-10d %15d %20d%n", threads, stripes, result.opsPerSecond(), result.checksum());
+			}
+		}
+	}
+
+	private record Result(long opsPerSecond, long checksum) {
+	}
+
+	private static Result run(StripedLockProvider provider, int threads) throws InterruptedException {
+		LongAdder operations = new LongAdder();
+		LongAdder checksum = new LongAdder();
+		AtomicBoolean measuring = new AtomicBoolean(false);
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch finished = new CountDownLatch(threads);
+
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long sink = 0;
+				while (running.get()) {
+					int[] indexes = provider.stripesOf(List.of(KeyLockProvider.vehicleId((long) random.nextInt(KEYS))));
+					provider.lock(indexes);
+					try {
+						for (int i = 0; i < CRITICAL_SECTION_WORK; i++) {
+							sink += i ^ sink;
+						}
+					} finally {
+						provider.unlock(indexes);
+					}
+					if (measuring.get()) {
+						operations.increment();
+					}
+				}
+				checksum.add(sink);
+				finished.countDown();
+			});
+			worker.setDaemon(true);
+			worker.start();
+		}
+
+		Thread.sleep(WARMUP_MS);
+		measuring.set(true);
+		Thread.sleep(MEASURE_MS);
+		measuring.set(false);
+		running.set(false);
+		finished.await();
+		return new Result(operations.sum() * 1000 / MEASURE_MS, checksum.sum());
+	}
+}
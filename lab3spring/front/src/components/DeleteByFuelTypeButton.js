@@ -4,7 +4,7 @@ import { useDispatch } from 'react-redux';
 import { setNotification } from '../redux/slices/userSlice';
 import { useState } from 'react';
 
-const DeleteByFuelTypeButton = ({ vehicles, currentUser, userRoles }) => {
+const DeleteByFuelTypeButton = ({ vehicles }) => {
     const dispatch = useDispatch();
     const [selectedFuelType, setSelectedFuelType] = useState('');
 
@@ -19,33 +19,25 @@ const DeleteByFuelTypeButton = ({ vehicles, currentUser, userRoles }) => {
             return;
         }
 
-        const vehiclesToDelete = vehicles.filter(vehicle => 
-            vehicle.fuelType === selectedFuelType && 
-            ((vehicle.permissionToEdit && userRoles.includes('ADMIN')) || 
-             vehicle.namesUsers.includes(currentUser))
-        );
-
-        if (vehiclesToDelete.length === 0) {
-            dispatch(setNotification({
-                color: 'warning',
-                message: 'Нет доступных машин для удаления с указанным типом топлива'
-            }));
-            return;
-        }
-
         try {
-            for (const vehicle of vehiclesToDelete) {
-                await axios.delete(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles/${vehicle.id}`, {
-                    headers: {
-                        Authorization: `Bearer ${localStorage.getItem('token')}`,
-                        'Reassign-Vehicle-Id': ''
-                    }
-                });
+            const response = await axios.delete(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles`, {
+                params: { fuelType: selectedFuelType },
+                headers: {
+                    Authorization: `Bearer ${localStorage.getItem('token')}`
+                }
+            });
+
+            if (response.data.deleted === 0) {
+                dispatch(setNotification({
+                    color: 'warning',
+                    message: 'Нет доступных машин для удаления с указанным типом топлива'
+                }));
+                return;
             }
-            
+
             dispatch(setNotification({
                 color: 'success',
-                message: `Удалено ${vehiclesToDelete.length} машин с типом топлива ${selectedFuelType}`
+                message: `Удалено ${response.data.deleted} машин с типом топлива ${selectedFuelType}`
             }));
             setSelectedFuelType('');
         } catch (error) {
@@ -20,7 +20,8 @@ const DeleteVehicleDialog = ({
             await axios.delete(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles/${vehicle.id}`, {
                 headers: {
                     Authorization: `Bearer ${localStorage.getItem('token')}`,
-                    'Reassign-Vehicle-Id': selectedVehicleId
+                    'Reassign-Vehicle-Id': selectedVehicleId,
+                    ...(vehicle.version !== undefined && { 'If-Match': `"${vehicle.version}"` })
                 }
             });
             
@@ -63,7 +63,8 @@ const EditVehicleDialog = ({ open, onClose, vehicle }) => {
                 formData,
                 {
                     headers: {
-                        Authorization: `Bearer ${localStorage.getItem('token')}`
+                        Authorization: `Bearer ${localStorage.getItem('token')}`,
+                        ...(vehicle.version !== undefined && { 'If-Match': `"${vehicle.version}"` })
                     }
                 }
             );
@@ -13,6 +13,7 @@ import {
     Box,
 } from '@mui/material';
 import DownloadIcon from '@mui/icons-material/Download';
+import ReplayIcon from '@mui/icons-material/Replay';
 import { useEffect, useState, useRef } from 'react';
 import axios from 'axios';
 import SockJS from 'sockjs-client';
@@ -63,6 +64,22 @@ const ImportStatusTable = () => {
                         console.log(data);
                         fetchStatuses();
                     });
+                    stompClient.subscribe('/user/queue/imports', (message) => {
+                        const progress = JSON.parse(message.body);
+                        setStatuses((current) => current.map((status) =>
+                            status.id === progress.id ? progress : status));
+                        if (progress.status === 'DONE') {
+                            dispatch(setNotification({
+                                color: 'success',
+                                message: `Импорт №${progress.id} завершён. Добавлено ${progress.count} ТС`
+                            }));
+                        } else if (progress.status === 'ERROR' || progress.status === 'PARTIAL') {
+                            dispatch(setNotification({
+                                color: 'error',
+                                message: `Импорт №${progress.id}: ${progress.message}`
+                            }));
+                        }
+                    });
                 },
                 debug: (str) => {
                     console.log(str);
@@ -79,7 +96,7 @@ const ImportStatusTable = () => {
             if (stompClientRef.current) stompClientRef.current.deactivate();
         };
     
-    }, []);
+    }, [dispatch]);
 
     const handleChangePage = (event, newPage) => {
         setPage(newPage);
@@ -124,7 +141,25 @@ const ImportStatusTable = () => {
             }));
         }
     };
-    
+
+    const handleResume = async (id) => {
+        try {
+            await axios.post(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles/import/${id}/resume`, null, {
+                headers: {
+                    'Authorization': `Bearer ${localStorage.getItem('token')}`
+                },
+            });
+            dispatch(setNotification({
+                color: 'success',
+                message: `Импорт №${id} снова поставлен в очередь`
+            }));
+        } catch (error) {
+            dispatch(setNotification({
+                color: 'error',
+                message: `Ошибка при продолжении импорта: ${error.response?.data?.message}`
+            }));
+        }
+    };
 
     const currentPageData = statuses.slice(
         page * rowsPerPage,
@@ -144,6 +179,7 @@ const ImportStatusTable = () => {
                             <TableCell>Статус</TableCell>
                             <TableCell>Пользователь</TableCell>
                             <TableCell>Количество машин</TableCell>
+                            <TableCell>Прочитано</TableCell>
                             <TableCell>Файл</TableCell>
                         </TableRow>
                     </TableHead>
@@ -156,6 +192,7 @@ const ImportStatusTable = () => {
                                 </TableCell>
                                 <TableCell>{status.username}</TableCell>
                                 <TableCell>{status.count}</TableCell>
+                                <TableCell>{readPercent(status)}</TableCell>
                                 <TableCell>
                                     <Box>
                                         <IconButton 
@@ -165,6 +202,14 @@ const ImportStatusTable = () => {
                                         >
                                             <DownloadIcon/>
                                         </IconButton>
+                                        {status.status === 'PARTIAL' && (
+                                            <IconButton
+                                                onClick={() => handleResume(status.id)}
+                                                color="primary"
+                                            >
+                                                <ReplayIcon/>
+                                            </IconButton>
+                                        )}
                                     </Box>
                                 </TableCell>
                             </TableRow>
@@ -188,11 +233,24 @@ const ImportStatusTable = () => {
     );
 };
 
+const readPercent = (status) => {
+    if (!status.bytesTotal) {
+        return '';
+    }
+    return `${Math.floor(100 * (status.bytesRead || 0) / status.bytesTotal)}% (${status.rowsProcessed || 0} строк)`;
+};
+
 const StatusChip = ({ status }) => {
     const getColor = () => {
         switch (status) {
             case 'DONE':
                 return 'success';
+            case 'QUEUED':
+                return 'default';
+            case 'RUNNING':
+                return 'info';
+            case 'PARTIAL':
+                return 'warning';
             case 'ERROR':
                 return 'error';
             default:
@@ -204,6 +262,12 @@ const StatusChip = ({ status }) => {
         switch (status) {
             case 'DONE':
                 return 'успешно';
+            case 'QUEUED':
+                return 'в очереди';
+            case 'RUNNING':
+                return 'выполняется';
+            case 'PARTIAL':
+                return 'прерван';
             case 'ERROR':
                 return 'ошибка';
             default:
@@ -1,4 +1,5 @@
 import { useState, useEffect } from 'react';
+import axios from 'axios';
 import { 
     Paper, 
     Box, 
@@ -12,6 +13,8 @@ import {
 import TableComponent from './TableComponent';
 import DeleteByFuelTypeButton from './DeleteByFuelTypeButton';
 
+const PAGE_SIZE = 100;
+
 const VehicleFilter = ({ vehicles }) => {
     const [filterType, setFilterType] = useState('');
     const [filterParams, setFilterParams] = useState({
@@ -21,6 +24,7 @@ const VehicleFilter = ({ vehicles }) => {
         wheelsMax: ''
     });
     const [filteredVehicles, setFilteredVehicles] = useState([]);
+    const [next, setNext] = useState(null);
 
     useEffect(() => {
         if (filterType) {
@@ -31,6 +35,7 @@ const VehicleFilter = ({ vehicles }) => {
     const handleFilterTypeChange = (event) => {
         setFilterType(event.target.value);
         setFilteredVehicles([]);
+        setNext(null);
     };
 
     const handleParamChange = (param, value) => {
@@ -40,46 +45,52 @@ const VehicleFilter = ({ vehicles }) => {
         }));
     };
 
-    const applyFilter = () => {
-        if (!vehicles || vehicles.length === 0) {
-            setFilteredVehicles([]);
-            return;
-        }
-
-        let result = [];
-        
+    const fetchPage = async (after) => {
+        const params = { filter: filterType, size: PAGE_SIZE };
         switch (filterType) {
-            case 'minEnginePower':
-                result = [vehicles.reduce((min, current) => 
-                    (current.enginePower < min.enginePower) ? current : min
-                , vehicles[0])];
-                break;
-
             case 'namePrefix':
-                result = vehicles.filter(vehicle => 
-                    vehicle.name.toLowerCase().startsWith(filterParams.namePrefix.toLowerCase())
-                );
+                params.namePrefix = filterParams.namePrefix;
                 break;
-
             case 'vehicleType':
-                result = vehicles.filter(vehicle => 
-                    vehicle.type === filterParams.vehicleType
-                );
+                params.vehicleType = filterParams.vehicleType;
                 break;
-
             case 'wheelsRange':
-                const min = Number(filterParams.wheelsMin);
-                const max = Number(filterParams.wheelsMax);
-                result = vehicles.filter(vehicle => 
-                    vehicle.numberOfWheels >= min && vehicle.numberOfWheels <= max
-                );
+                params.wheelsMin = Number(filterParams.wheelsMin);
+                params.wheelsMax = Number(filterParams.wheelsMax);
                 break;
-
             default:
-                result = [];
+                break;
         }
 
-        setFilteredVehicles(result);
+        const response = await axios.get(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles`, {
+            headers: {
+                Authorization: `Bearer ${localStorage.getItem('token')}`,
+            },
+            params: after ? { ...params, after } : params
+        });
+        return response.data;
+    };
+
+    const applyFilter = async () => {
+        try {
+            const page = await fetchPage(null);
+            setFilteredVehicles(page.vehicles);
+            setNext(page.next);
+        } catch (error) {
+            console.error('Error filtering vehicles:', error);
+            setFilteredVehicles([]);
+            setNext(null);
+        }
+    };
+
+    const loadMore = async () => {
+        try {
+            const page = await fetchPage(next);
+            setFilteredVehicles(prev => prev.concat(page.vehicles));
+            setNext(page.next);
+        } catch (error) {
+            console.error('Error filtering vehicles:', error);
+        }
     };
 
     return (
@@ -153,11 +164,16 @@ const VehicleFilter = ({ vehicles }) => {
             {filteredVehicles.length > 0 && (
                 <TableComponent vehicles={filteredVehicles} />
             )}
-            <DeleteByFuelTypeButton 
-                vehicles={vehicles}
-                currentUser={localStorage.getItem('name')}
-                userRoles={localStorage.getItem('roles')}
-            />
+            {next && (
+                <Button
+                    variant="outlined"
+                    onClick={loadMore}
+                    sx={{ mt: 1 }}
+                >
+                    Показать ещё
+                </Button>
+            )}
+            <DeleteByFuelTypeButton vehicles={vehicles} />
         </Paper>
     );
 };
@@ -38,10 +38,9 @@ const VehicleImport = () => {
                     }
                 }
             );
-            console.log();
             dispatch(setNotification({
                 color: 'success',
-                message: `Импорт прошёл успешно. Добавлено ${response.data} ТС`
+                message: `Импорт №${response.data.id} поставлен в очередь`
             }));
             setSelectedFile(null);
             if (fileInputRef.current) {
@@ -6,6 +6,7 @@ import DirectionsBoatIcon from '@mui/icons-material/DirectionsBoat';
 import AddIcon from '@mui/icons-material/Add';
 import RemoveIcon from '@mui/icons-material/Remove';
 import VehicleTableRow from './VehicleTableRow';
+import axios from 'axios';
 
 const VehicleMap = ({ vehicles }) => {
     const [selectedVehicle, setSelectedVehicle] = useState(null);
@@ -13,16 +14,53 @@ const VehicleMap = ({ vehicles }) => {
     const userRoles = JSON.parse(localStorage.getItem('roles') || '[]');
     const [scale, setScale] = useState(1);
     const [bounds, setBounds] = useState({
-        maxX: Math.max(...vehicles.map(v => v.x), 200),
-        maxY: Math.max(...vehicles.map(v => v.y), 200),
-        minX: Math.min(...vehicles.map(v => v.x), -200),
-        minY: Math.min(...vehicles.map(v => v.y), -200)
+        maxX: 200,
+        maxY: 200,
+        minX: -200,
+        minY: -200
     });
+    const [mapView, setMapView] = useState({ cells: [], points: [] });
 
     useEffect(() => {
         setSelectedVehicle(null);
     }, [vehicles]);
 
+    useEffect(() => {
+        if (bounds.minX >= bounds.maxX || bounds.minY >= bounds.maxY) {
+            return;
+        }
+        const token = localStorage.getItem('token');
+        const zoom = Math.min(Math.max(Math.round(Math.log2(scale * 8)), 0), 5);
+        const timer = setTimeout(async () => {
+            try {
+                const response = await axios.get(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles/map`, {
+                    headers: {
+                        Authorization: `Bearer ${token}`,
+                    },
+                    params: {
+                        minX: Math.floor(bounds.minX),
+                        maxX: Math.ceil(bounds.maxX),
+                        minY: bounds.minY,
+                        maxY: bounds.maxY,
+                        zoom
+                    }
+                });
+                setMapView(response.data);
+            } catch (error) {
+                console.error('Error fetching vehicle map:', error);
+            }
+        }, 200);
+        return () => clearTimeout(timer);
+    }, [bounds, scale, vehicles]);
+
+    const getDominantFuelType = (fuelTypes) => {
+        return Object.entries(fuelTypes).reduce((best, entry) => (best === null || entry[1] > best[1] ? entry : best), null)?.[0];
+    };
+
+    const handlePointClick = (point) => {
+        setSelectedVehicle(vehicles.find(v => v.id === point.id) || null);
+    };
+
     const fuelTypeColors = {
         KEROSENE: '#FF9800',  
         DIESEL: '#795548',  
@@ -232,7 +270,38 @@ const VehicleMap = ({ vehicles }) => {
                     backgroundColor: '#ddd'
                 }} />
 
-                {vehicles.map((vehicle) => {
+                {mapView.cells.map((cell) => {
+                    const x = scaleCoordinate(cell.centerX, bounds.minX, bounds.maxX, 50, 950);
+                    const y = scaleCoordinate(cell.centerY, bounds.minY, bounds.maxY, 50, 450);
+                    const size = Math.min(24 + Math.log10(cell.count) * 12, 64);
+
+                    return (
+                        <Box
+                            key={`${cell.cellX}-${cell.cellY}`}
+                            sx={{
+                                position: 'absolute',
+                                left: `${x}px`,
+                                bottom: `${y}px`,
+                                width: `${size}px`,
+                                height: `${size}px`,
+                                transform: 'translate(-50%, 50%)',
+                                borderRadius: '50%',
+                                backgroundColor: fuelTypeColors[getDominantFuelType(cell.fuelTypes)] || '#757575',
+                                color: '#fff',
+                                display: 'flex',
+                                alignItems: 'center',
+                                justifyContent: 'center',
+                                fontSize: '0.8rem',
+                                zIndex: 1
+                            }}
+                            title={Object.entries(cell.fuelTypes).map(([fuelType, count]) => `${fuelType}: ${count}`).join(', ')}
+                        >
+                            {cell.count}
+                        </Box>
+                    );
+                })}
+
+                {mapView.points.map((vehicle) => {
                     const x = scaleCoordinate(vehicle.x, bounds.minX, bounds.maxX, 50, 950);
                     const y = scaleCoordinate(vehicle.y, bounds.minY, bounds.maxY, 50, 450);
 
@@ -246,7 +315,7 @@ const VehicleMap = ({ vehicles }) => {
                                 transform: 'translate(-50%, 50%)',
                                 zIndex: 1
                             }}
-                            onClick={() => setSelectedVehicle(vehicle)}
+                            onClick={() => handlePointClick(vehicle)}
                             title={`Type: ${vehicle.type}, Fuel: ${vehicle.fuelType}, X: ${vehicle.x}, Y: ${vehicle.y}`}
                         >
                             {getVehicleIcon(vehicle.type, vehicle.fuelType)}
@@ -17,23 +17,66 @@ const Home = () => {
 
   const [vehicles, setVehicles] = useState([]);
   const stompClientRef = useRef(null);
+  const versionRef = useRef(null);
 
   useEffect(() => {
     const token = localStorage.getItem('token');
 
     const fetchVehicles = async () => {
         try {
-            const response = await axios.get(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles`, {
+            const response = await axios.get(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles?full=true`, {
                 headers: {
                     Authorization: `Bearer ${token}`,
                 }
             });
             setVehicles(response.data); 
+            const version = response.headers['x-table-version'];
+            versionRef.current = version !== undefined ? Number(version) : null;
         } catch (error) {
             console.error('Error fetching vehicles:', error);
         }
     };
 
+    const applyChanges = (upserted, deleted) => {
+        setVehicles(prev => {
+            const byId = new Map(prev.map(vehicle => [vehicle.id, vehicle]));
+            deleted.forEach(id => byId.delete(id));
+            upserted.forEach(vehicle => byId.set(vehicle.id, vehicle));
+            return Array.from(byId.values()).sort((a, b) => a.id - b.id);
+        });
+    };
+
+    const fetchChanges = async () => {
+        try {
+            const response = await axios.get(`http://${process.env.REACT_APP_SERVER}/api/user/vehicles/changes?since=${versionRef.current}`, {
+                headers: {
+                    Authorization: `Bearer ${token}`,
+                }
+            });
+            if (response.data.fullReload) {
+                fetchVehicles();
+                return;
+            }
+            applyChanges(response.data.upserted, response.data.deleted);
+            versionRef.current = response.data.version;
+        } catch (error) {
+            console.error('Error fetching vehicle changes:', error);
+        }
+    };
+
+    const handleDelta = (data) => {
+        if (versionRef.current === null || data.version === undefined || data.version === null || data.fullReload) {
+            fetchVehicles();
+        } else if (data.version <= versionRef.current) {
+            return;
+        } else if (data.previousVersion === versionRef.current) {
+            applyChanges(data.upserted, data.deleted);
+            versionRef.current = data.version;
+        } else {
+            fetchChanges();
+        }
+    };
+
     fetchVehicles();
 
     const connectWebSocket = () => {
@@ -48,7 +91,7 @@ const Home = () => {
                 stompClient.subscribe('/topic/tableUpdates', (message) => {
                     const data = JSON.parse(message.body);
                     console.log(data);
-                    fetchVehicles();
+                    handleDelta(data);
                 });
             },
             debug: (str) => {